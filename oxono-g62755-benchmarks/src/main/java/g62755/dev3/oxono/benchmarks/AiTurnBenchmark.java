@@ -0,0 +1,64 @@
+package g62755.dev3.oxono.benchmarks;
+
+import g62755.dev3.oxono.model.AI;
+import g62755.dev3.oxono.model.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full easy AI turn over board sizes and fill levels. The turn changes the position, so a fresh copy of
+ * it is made before each call; this per-call setup is kept apart from {@link GameBenchmark}, whose queries would
+ * otherwise pay for it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AiTurnBenchmark {
+
+    @Param({"4", "6", "8", "16"})
+    private int size;
+
+    @Param({"EARLY", "MID", "LATE"})
+    private Fill fill;
+
+    private Game game;
+    private Game played;
+    private AI ai;
+    private Random random = new Random(42);
+
+    /**
+     * Builds the position. The console output of each action is dropped so that only the model is measured.
+     */
+    @Setup
+    public void setUp() {
+        game = Positions.at(size, fill, 42).game();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Gives the AI a fresh copy of the position before each of its turns.
+     */
+    @Setup(Level.Invocation)
+    public void setUpTurn() {
+        played = new Game(game);
+        ai = new AI(played, random);
+    }
+
+    /**
+     * Plays a full easy AI turn, the totem move then the insert, with {@link AI#play}.
+     * @return the game after the turn
+     */
+    @Benchmark
+    public Game aiPlay() {
+        ai.play();
+        ai.play();
+        return played;
+    }
+}
@@ -0,0 +1,93 @@
+package g62755.dev3.oxono.benchmarks;
+
+import g62755.dev3.oxono.model.Board;
+import g62755.dev3.oxono.model.Position;
+import g62755.dev3.oxono.model.Symbol;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the move checks of {@link Board}. Each operation asks about every cell of the board for both totems,
+ * so scores compare across sizes as the cost of a full sweep.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    @Param({"4", "6", "8", "16"})
+    private int size;
+
+    @Param({"EARLY", "MID", "LATE"})
+    private Fill fill;
+
+    private Board board;
+    private Position[] totems;
+    private Position[] cells;
+
+    /**
+     * Builds the measured position.
+     */
+    @Setup
+    public void setUp() {
+        board = Positions.at(size, fill, 42).board();
+        totems = new Position[] {board.getTotem(Symbol.X).getPosition(), board.getTotem(Symbol.O).getPosition()};
+        cells = new Position[size * size];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = board.getPosition(i);
+        }
+    }
+
+    /**
+     * Checks every destination of both totems with {@link Board#isValidMove}.
+     * @return the number of valid moves
+     */
+    @Benchmark
+    public int isValidMove() {
+        int valid = 0;
+        for (Position from : totems) {
+            for (Position to : cells) {
+                if (board.isValidMove(from, to)) {
+                    valid++;
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks every destination of both totems with {@link Board#isValidMoveWhileEnclaved}.
+     * @return the number of valid moves
+     */
+    @Benchmark
+    public int isValidMoveWhileEnclaved() {
+        int valid = 0;
+        for (Position from : totems) {
+            for (Position to : cells) {
+                if (board.isValidMoveWhileEnclaved(from, to)) {
+                    valid++;
+                }
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Checks both totems with {@link Board#isEnclaved}.
+     * @return the number of enclaved totems
+     */
+    @Benchmark
+    public int isEnclaved() {
+        int enclaved = 0;
+        for (Position totem : totems) {
+            if (board.isEnclaved(totem)) {
+                enclaved++;
+            }
+        }
+        return enclaved;
+    }
+}
@@ -0,0 +1,25 @@
+package g62755.dev3.oxono.benchmarks;
+
+/**
+ * How far into a game a benchmarked position is, as the share of the board covered by tokens.
+ */
+public enum Fill {
+    EARLY(0.15),
+    MID(0.45),
+    LATE(0.70);
+
+    private final double share;
+
+    Fill(double share) {
+        this.share = share;
+    }
+
+    /**
+     * Returns the number of tokens on a board of the given size at this fill level.
+     * @param size the size of the board
+     * @return the number of tokens, at least one
+     */
+    public int tokens(int size) {
+        return Math.max(1, (int) Math.round(share * (size * size - 2)));
+    }
+}
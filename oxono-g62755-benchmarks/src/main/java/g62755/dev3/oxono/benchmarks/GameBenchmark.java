@@ -0,0 +1,66 @@
+package g62755.dev3.oxono.benchmarks;
+
+import g62755.dev3.oxono.model.Game;
+import g62755.dev3.oxono.model.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the queries of {@link Game} over board sizes and fill levels. The position is built once per trial,
+ * as the queries leave it as it was; a full AI turn, which needs a fresh position each time, is measured by
+ * {@link AiTurnBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    @Param({"4", "6", "8", "16"})
+    private int size;
+
+    @Param({"EARLY", "MID", "LATE"})
+    private Fill fill;
+
+    private Game game;
+    private Position[] tokens;
+
+    /**
+     * Builds the measured position. The console output of each action is dropped so that only the model is measured.
+     */
+    @Setup
+    public void setUp() {
+        game = Positions.at(size, fill, 42).game();
+        tokens = Positions.tokens(game);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Checks for a line through every token with {@link Game#checkWin}.
+     * @return the number of tokens on a completed line
+     */
+    @Benchmark
+    public int checkWin() {
+        int wins = 0;
+        for (Position token : tokens) {
+            if (game.checkWin(token)) {
+                wins++;
+            }
+        }
+        return wins;
+    }
+
+    /**
+     * Counts the empty cells with {@link Game#countEmptyTiles}.
+     * @return the number of empty cells
+     */
+    @Benchmark
+    public int countEmptyTiles() {
+        return game.countEmptyTiles();
+    }
+}
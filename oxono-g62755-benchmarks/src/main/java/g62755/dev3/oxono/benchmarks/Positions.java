@@ -0,0 +1,99 @@
+package g62755.dev3.oxono.benchmarks;
+
+import g62755.dev3.oxono.model.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds the positions measured by the benchmarks by playing random games from the initial position,
+ * so that every run measures exactly the same positions.
+ */
+final class Positions {
+
+    private static final int ATTEMPTS = 100_000;
+
+    private Positions() {
+    }
+
+    /**
+     * A game together with its board, which the game does not expose.
+     * @param game the game
+     * @param board the board of the game
+     */
+    record Snapshot(Game game, Board board) {
+    }
+
+    /**
+     * Returns a game with the given board size and number of tokens, in the move phase and not ended.
+     * Actions are drawn at random, except inserts that would end the game, so that late positions stay reachable.
+     * @param size the size of the board
+     * @param fill the fill level of the position
+     * @param seed the seed of the random games played to reach it
+     * @return the game and its board
+     * @throws IllegalStateException if no random game reaches that many tokens without ending
+     */
+    static Snapshot at(int size, Fill fill, long seed) {
+        int tokens = fill.tokens(size);
+        Random random = new Random(seed);
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            Board board = new Board(size);
+            Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), board);
+            int[] moves = new int[game.getMaxMoves()];
+            int placed = 0;
+            while (placed < tokens && playQuietly(game, moves, random)) {
+                if (game.getGameState() == GameState.MOVE) {
+                    placed++;
+                }
+            }
+            if (placed == tokens) {
+                return new Snapshot(game, board);
+            }
+        }
+        throw new IllegalStateException("No random game reaches " + tokens + " tokens on a " + size + "x" + size + " board.");
+    }
+
+    // Plays a random action that does not end the game, returns false if there is none
+    private static boolean playQuietly(Game game, int[] moves, Random random) {
+        int count = game.generateMoves(moves);
+        while (count > 0) {
+            int i = random.nextInt(count);
+            int move = moves[i];
+            game.makeMove(move);
+            if (!game.isEnded()) {
+                return true;
+            }
+            game.unmakeMove();
+            moves[i] = moves[--count];
+        }
+        return false;
+    }
+
+    /**
+     * Returns a game in its initial position.
+     * @param size the size of the board
+     * @return the new game
+     */
+    static Game newGame(int size) {
+        return new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+    }
+
+    /**
+     * Returns the positions of every token of a game.
+     * @param game the game
+     * @return the positions holding a token, row by row
+     */
+    static Position[] tokens(Game game) {
+        int size = game.getBoardSize();
+        Position[] found = new Position[size * size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (game.getPawnAt(row, col) instanceof Token) {
+                    found[count++] = new Position(row, col);
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+}
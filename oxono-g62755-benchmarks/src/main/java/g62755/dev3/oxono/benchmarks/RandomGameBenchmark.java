@@ -0,0 +1,57 @@
+package g62755.dev3.oxono.benchmarks;
+
+import g62755.dev3.oxono.model.Game;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full game of random actions from the initial position, played and taken back with
+ * {@link Game#makeMove} and {@link Game#unmakeMove} as the search and the self-play runner do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomGameBenchmark {
+
+    @Param({"4", "6", "8", "16"})
+    private int size;
+
+    private Game game;
+    private int[] moves;
+    private Random random = new Random(42);
+
+    /**
+     * Builds the initial position.
+     */
+    @Setup
+    public void setUp() {
+        game = Positions.newGame(size);
+        moves = new int[game.getMaxMoves()];
+    }
+
+    /**
+     * Plays random actions until the game ends or no action is left, then takes them all back.
+     * @return the number of actions played
+     */
+    @Benchmark
+    public int randomGame() {
+        int plies = 0;
+        while (!game.isEnded()) {
+            int count = game.generateMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            game.makeMove(moves[random.nextInt(count)]);
+            plies++;
+        }
+        for (int i = plies; i > 0; i--) {
+            game.unmakeMove();
+        }
+        return plies;
+    }
+}
@@ -3,6 +3,7 @@ package g62755.dev3.oxono.JavaFX;
 import g62755.dev3.oxono.controller.JavaFXController;
 import g62755.dev3.oxono.model.Board;
 import g62755.dev3.oxono.model.Color;
+import g62755.dev3.oxono.model.Difficulty;
 import g62755.dev3.oxono.model.Game;
 import g62755.dev3.oxono.model.Player;
 import g62755.dev3.oxono.view.BlackPlayerInfoView;
@@ -64,7 +65,7 @@ public class MainApp extends Application {
      * Starts the game by setting up the game board, players, and initializing the necessary views.
      * Switches the scene from the menu to the game board.
      * @param boardSize The size of the game board (e.g., 6x6).
-     * @param difficulty The selected difficulty level (not used in this implementation).
+     * @param difficulty The selected difficulty level (Easy, Medium or Hard).
      */
     public void startGame(int boardSize, String difficulty) {
         Board board = new Board(boardSize);
@@ -81,9 +82,11 @@ public class MainApp extends Application {
         blackPlayerInfoView.setPrefWidth(150);
         blackPlayerInfoView.setPadding(new Insets(20));
 
-        gameBoardView = new GameBoardView(menuView);
-        JavaFXController javaFXController = new JavaFXController(game, gameBoardView, pinkPlayerInfoView, blackPlayerInfoView);
+        gameBoardView = new GameBoardView(boardSize);
+        JavaFXController javaFXController = new JavaFXController(game, gameBoardView, pinkPlayerInfoView, blackPlayerInfoView,
+                Difficulty.valueOf(difficulty.toUpperCase()));
         gameBoardView.setJavaFXController(javaFXController);
+        primaryStage.setOnCloseRequest(e -> javaFXController.shutdown());
 
         BorderPane gameRoot = new BorderPane();
         gameRoot.setLeft(pinkPlayerInfoView);
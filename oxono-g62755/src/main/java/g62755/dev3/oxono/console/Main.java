@@ -4,10 +4,13 @@ import g62755.dev3.oxono.controller.GameController;
 import g62755.dev3.oxono.model.*;
 import g62755.dev3.oxono.view.GameView;
 
+import java.util.Scanner;
+
 public class Main {
 
     /**
-     * The entry point of the application. Initializes the game with a board, players, and starts the game.
+     * The entry point of the application. Initializes the game with a board, players, and starts the game
+     * against an AI of the difficulty level the player chooses first.
      * @param args Command-line arguments (not used in this case).
      */
     public static void main(String[] args) {
@@ -16,9 +19,21 @@ public class Main {
         Player blackPlayer = new Player(Color.BLACK, 6);
         Game game = new Game(blackPlayer, pinkPlayer, board);
         GameView gameView = new GameView();
-        GameController gameController = new GameController(game, gameView);
+        Scanner scanner = new Scanner(System.in);
+        gameView.displayDifficultyScannerMessage();
+        Difficulty difficulty = readDifficulty(scanner.hasNextLine() ? scanner.nextLine() : "");
+        GameController gameController = new GameController(game, gameView, difficulty);
         gameView.setController(gameController);
 
-        gameController.start();
+        gameController.start(scanner);
+    }
+
+    private static Difficulty readDifficulty(String input) {
+        for (Difficulty difficulty : Difficulty.values()) {
+            if (difficulty.name().equalsIgnoreCase(input.trim())) {
+                return difficulty;
+            }
+        }
+        return Difficulty.EASY;
     }
 }
@@ -2,18 +2,23 @@ package g62755.dev3.oxono.controller;
 
 import g62755.dev3.oxono.model.*;
 import g62755.dev3.oxono.view.GameView;
-import g62755.dev3.util.Observer;
+import g62755.dev3.util.EventBus;
 
+import java.util.List;
 import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class GameController implements Observer {
+public class GameController {
 
     private Game game;
     private GameView gameView;
     private AI ai;
+    private ExecutorService aiExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private EventBus<GameEvent>.Subscription subscription;
 
     private static final Pattern moveTotemPattern = Pattern.compile("^([XO]) (\\d) (\\d)$");
     private static final Pattern insertTokenPattern = Pattern.compile("^(\\d) (\\d)$");
@@ -27,10 +32,21 @@ public class GameController implements Observer {
      * @param gameView The game view.
      */
     public GameController(Game game, GameView gameView) {
+        this(game, gameView, Difficulty.EASY);
+    }
+
+    /**
+     * Constructs a new GameController with an AI of the given difficulty.
+     * Above the easy level, the AI ponders while the player types.
+     * @param game       The game model.
+     * @param gameView   The game view.
+     * @param difficulty The difficulty level of the AI.
+     */
+    public GameController(Game game, GameView gameView, Difficulty difficulty) {
         this.game = game;
         this.gameView = gameView;
-        this.ai = new AI(game, new Random());
-        game.addObserver(this);
+        this.ai = new AI(game, new Random(), difficulty);
+        this.subscription = game.getEvents().subscribe(this::changed, Runnable::run);
     }
 
     /**
@@ -43,18 +59,38 @@ public class GameController implements Observer {
         return game.getPawnAt(x, y);
     }
 
+    /**
+     * Returns the size of the board.
+     * @return The number of rows and columns of the board.
+     */
+    public int getBoardSize() {
+        return game.getBoardSize();
+    }
+
     /***
      * Starts the game and handles the game loop.
      */
     public void start() {
+        start(new Scanner(System.in));
+    }
+
+    /**
+     * Starts the game and handles the game loop, reading the commands of the player from a scanner.
+     * The AI stops pondering whenever the loop ends, even on an invalid command.
+     * @param scanner The scanner reading the commands, closed at the end of the game.
+     */
+    public void start(Scanner scanner) {
         gameView.displayStartGameMessage();
         gameView.displayBoard();
 
-        Scanner scanner = new Scanner(System.in);
-
-        while (!game.won() && !game.drew() && !game.isEnded()) {
-            playTurn(scanner);
+        try {
+            while (!game.won() && !game.drew() && !game.isEnded()) {
+                playTurn(scanner);
+            }
+        } finally {
+            ai.stopPondering();
         }
+        gameView.releaseBoard();
         if (game.won()) {
             if (game.getToPlay().getC() == Color.PINK) {
                 gameView.displayWinMessage(Color.BLACK);
@@ -64,7 +100,8 @@ public class GameController implements Observer {
         } else if (game.drew()) {
             gameView.displayDrawMessage();
         }
-        game.removeObserver(this);
+        aiExecutor.shutdownNow();
+        subscription.close();
         scanner.close();
     }
 
@@ -75,6 +112,7 @@ public class GameController implements Observer {
         if (game.getToPlay().getC() == Color.BLACK) {
             ai.play();
         } else {
+            ai.startPondering(aiExecutor);
             if (game.getGameState() == GameState.MOVE) {
                 moveTotem(scanner);
             } else if (game.getGameState() == GameState.INSERT) {
@@ -125,6 +163,7 @@ public class GameController implements Observer {
     }
 
     private void insertToken(Scanner scanner) {
+        gameView.displayBoard(); // the totem move is only published with the insert
         gameView.displayInsertTokenScannerMessage();
 
         String input = scanner.nextLine().trim().toUpperCase();
@@ -164,11 +203,13 @@ public class GameController implements Observer {
         }
     }
 
-    /**
-     * Updates the game view by redisplaying the game board.
-     */
-    @Override
-    public void update() {
-        gameView.displayBoard();
+    // Redisplays the board once per turn that changed a cell, not when only the phase changed
+    private void changed(List<GameEvent> events) {
+        for (GameEvent event : events) {
+            if (!(event instanceof GameEvent.PhaseChanged) && !(event instanceof GameEvent.GameEnded)) {
+                gameView.displayBoard();
+                return;
+            }
+        }
     }
 }
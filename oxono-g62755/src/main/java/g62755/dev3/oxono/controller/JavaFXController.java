@@ -4,11 +4,17 @@ import g62755.dev3.oxono.model.*;
 import g62755.dev3.oxono.view.BlackPlayerInfoView;
 import g62755.dev3.oxono.view.GameBoardView;
 import g62755.dev3.oxono.view.PinkPlayerInfoView;
-import g62755.dev3.util.Observer;
+import g62755.dev3.util.EventBus;
+import javafx.application.Platform;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class JavaFXController implements Observer {
+public class JavaFXController {
 
     private Game game;
     private GameBoardView gameBoardView;
@@ -18,6 +24,9 @@ public class JavaFXController implements Observer {
     private boolean waitingInsertToken;
     private Symbol lastMovedTotemSymbol;
     private AI ai;
+    private ExecutorService aiExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private CompletableFuture<Turn> aiTurn;
+    private EventBus<GameEvent>.Subscription subscription;
 
     /**
      * Constructs a new JavaFXController.
@@ -25,14 +34,16 @@ public class JavaFXController implements Observer {
      * @param gameBoardView       The game board view.
      * @param pinkPlayerInfoView  The pink player info view.
      * @param blackPlayerInfoView The black player info view.
+     * @param difficulty          The difficulty level of the AI.
      */
-    public JavaFXController(Game game, GameBoardView gameBoardView, PinkPlayerInfoView pinkPlayerInfoView, BlackPlayerInfoView blackPlayerInfoView) {
+    public JavaFXController(Game game, GameBoardView gameBoardView, PinkPlayerInfoView pinkPlayerInfoView, BlackPlayerInfoView blackPlayerInfoView, Difficulty difficulty) {
         this.game = game;
         this.gameBoardView = gameBoardView;
         this.pinkPlayerInfoView = pinkPlayerInfoView;
         this.blackPlayerInfoView = blackPlayerInfoView;
-        this.ai = new AI(game, new Random());
-        game.addObserver(this);
+        this.ai = new AI(game, new Random(), difficulty);
+        this.subscription = game.getEvents().subscribe(this::changed, JavaFXController::onFxThread);
+        ai.startPondering(aiExecutor);
     }
 
     /**
@@ -84,6 +95,24 @@ public class JavaFXController implements Observer {
         return game.isValidMove(from, to);
     }
 
+    /**
+     * Returns every legal destination of the totem at a position.
+     * @param from The position of the totem.
+     * @return The legal destinations, as cell indices (row * size + col), not to be changed.
+     */
+    public BitSet getMoveTargets(Position from) {
+        return game.getMoveTargets(from);
+    }
+
+    /**
+     * Returns every legal insertion cell around the totem at a position.
+     * @param posTotem The position of the totem.
+     * @return The legal insertion cells, as cell indices (row * size + col), not to be changed.
+     */
+    public BitSet getInsertTargets(Position posTotem) {
+        return game.getInsertTargets(posTotem);
+    }
+
     /**
      * Checks if a position is within the game board bounds.
      * @param p The position to check.
@@ -109,7 +138,11 @@ public class JavaFXController implements Observer {
      * @param newPos The new position.
      */
     public void moveTotem(Totem totem, Position newPos) {
+        Position from = game.getTotem(totem.getSymbol()).getPosition();
         game.move(totem, newPos);
+        // the events of the move are only published with the insert, so the cells are repainted here
+        gameBoardView.repaintCell(from);
+        gameBoardView.repaintCell(newPos);
         selectedTotem = newPos;
         lastMovedTotemSymbol = totem.getSymbol();
         waitingInsertToken = true;
@@ -129,10 +162,14 @@ public class JavaFXController implements Observer {
     }
 
     /**
-     * Undoes the last action.
+     * Undoes the last action. While the AI thinks, its turn is dropped and the insert that started it is undone.
      */
     public void undo() {
-        game.undo();
+        if (cancelAiTurn()) {
+            game.seek(game.getPly() - 1);
+        } else {
+            game.undo();
+        }
         gameBoardView.resetHighlights();
         if (game.getGameState() == GameState.INSERT) {
             waitingInsertToken = true;
@@ -147,12 +184,31 @@ public class JavaFXController implements Observer {
         gameBoardView.updateCurrentGameStateLabel();
         gameBoardView.updateEmptyTilesLabel();
         gameBoardView.updateCurrentPlayerLabel();
+        ai.startPondering(aiExecutor);
     }
 
     /**
-     * Redoes the last undone action.
+     * Redoes the last undone action. Does nothing while the AI thinks, as the insert that started its turn
+     * dropped the actions to redo.
      */
     public void redo() {
+        if (aiTurn != null) {
+            return;
+        }
+        if (game.getGameState() == GameState.INSERT && game.getLastPly() == game.getPly() + 1) {
+            // the undo cancelled the AI turn, so only the insert is redone and the AI thinks again
+            game.seek(game.getPly() + 1);
+            gameBoardView.resetHighlights();
+            waitingInsertToken = false;
+            selectedTotem = null;
+            lastMovedTotemSymbol = null;
+            updatePlayerInfo();
+            gameBoardView.updateCurrentGameStateLabel();
+            gameBoardView.updateEmptyTilesLabel();
+            gameBoardView.updateCurrentPlayerLabel();
+            playAiTurn();
+            return;
+        }
         game.redo();
         gameBoardView.resetHighlights();
         if (game.getGameState() == GameState.MOVE) {
@@ -168,12 +224,18 @@ public class JavaFXController implements Observer {
         gameBoardView.updateCurrentGameStateLabel();
         gameBoardView.updateEmptyTilesLabel();
         gameBoardView.updateCurrentPlayerLabel();
+        ai.startPondering(aiExecutor);
     }
 
     /**
-     * Surrenders the game for the current player.
+     * Surrenders the game for the current player. While the AI thinks, its turn is dropped and the human
+     * surrenders instead of the insert that started it, so the game ends on the human's turn.
      */
     public void surrender() {
+        if (cancelAiTurn()) {
+            game.seek(game.getPly() - 1);
+        }
+        ai.stopPondering();
         if (game.getGameState() != GameState.ENDED) {
             game.surrender();
             gameBoardView.displaySurrenderMessage(game.getToPlay());
@@ -187,7 +249,7 @@ public class JavaFXController implements Observer {
      * @param col The column index of the cell.
      */
     public void handleClickOnCell(int row, int col) {
-        if (game.isEnded()) {
+        if (game.isEnded() || aiTurn != null) {
             return;
         }
 
@@ -203,6 +265,7 @@ public class JavaFXController implements Observer {
                 selectedTotem = null;
                 gameBoardView.resetHighlights();
                 if (game.won() || game.drew()) {
+                    ai.stopPondering();
                     if (game.won()) {
                         if (game.getToPlay().getC() == Color.PINK) {
                             gameBoardView.displayWinMessage(Color.BLACK);
@@ -218,10 +281,7 @@ public class JavaFXController implements Observer {
                     gameBoardView.updateCurrentPlayerLabel();
                     gameBoardView.updateCurrentGameStateLabel();
                 } else {
-                    aiPlay();
-                    aiPlay();
-                    gameBoardView.updateCurrentPlayerLabel();
-                    gameBoardView.updateCurrentGameStateLabel();
+                    playAiTurn();
                 }
             } else {
                 throw new IllegalArgumentException("Invalid insert position.");
@@ -252,9 +312,46 @@ public class JavaFXController implements Observer {
         }
     }
 
-    private void aiPlay() {
+    /**
+     * Cancels the turn the AI is thinking about or pondering, if any, and stops its background threads.
+     * To be called when the window is closed.
+     */
+    public void shutdown() {
+        subscription.close();
+        ai.stopPondering();
+        cancelAiTurn();
+        aiExecutor.shutdownNow();
+    }
+
+    // The AI searches on a background thread, its turn is played back on the JavaFX thread
+    private void playAiTurn() {
+        CompletableFuture<Turn> turn = ai.chooseTurn(aiExecutor);
+        aiTurn = turn;
+        turn.whenComplete((chosen, failure) -> Platform.runLater(() -> {
+            if (aiTurn != turn) {
+                return; // already played or cancelled
+            }
+            aiTurn = null;
+            if (failure != null) {
+                throw new IllegalStateException("AI turn failed.", failure);
+            }
+            aiPlay(chosen);
+        }));
+    }
+
+    // Cancelling the future stops its search; the turn is never played, so the game stays as before the AI turn
+    private boolean cancelAiTurn() {
+        if (aiTurn == null) {
+            return false;
+        }
+        aiTurn.cancel(true);
+        aiTurn = null;
+        return true;
+    }
+
+    private void aiPlay(Turn turn) {
         if (!game.isEnded()) {
-            ai.play();
+            ai.playTurn(turn);
             if (game.won() || game.drew()) {
                 if (game.won()) {
                     if (game.getToPlay().getC() == Color.PINK) {
@@ -270,6 +367,9 @@ public class JavaFXController implements Observer {
                 }
             }
         }
+        gameBoardView.updateCurrentPlayerLabel();
+        gameBoardView.updateCurrentGameStateLabel();
+        ai.startPondering(aiExecutor);
     }
 
     /**
@@ -280,13 +380,45 @@ public class JavaFXController implements Observer {
         return game.countEmptyTiles();
     }
 
-    /**
-     * Updates the game view.
-     */
-    @Override
-    public void update() {
-        gameBoardView.displayBoard();
-        gameBoardView.updateEmptyTilesLabel();
-        updatePlayerInfo();
+    // Repaints the cells named by a batch of changes, or every cell when the board was restored by a seek
+    private void changed(List<GameEvent> events) {
+        boolean counts = false;
+        for (GameEvent event : events) {
+            switch (event) {
+                case GameEvent.TotemMoved moved -> {
+                    gameBoardView.repaintCell(moved.from());
+                    gameBoardView.repaintCell(moved.to());
+                }
+                case GameEvent.TokenInserted inserted -> {
+                    gameBoardView.repaintCell(inserted.position());
+                    counts = true;
+                }
+                case GameEvent.TokenRemoved removed -> {
+                    gameBoardView.repaintCell(removed.position());
+                    counts = true;
+                }
+                case GameEvent.BoardRestored restored -> {
+                    gameBoardView.repaintCells();
+                    counts = true;
+                }
+                case GameEvent.PhaseChanged phase -> {
+                }
+                case GameEvent.GameEnded ended -> {
+                }
+            }
+        }
+        if (counts) {
+            gameBoardView.updateEmptyTilesLabel();
+            updatePlayerInfo();
+        }
+    }
+
+    // The game is changed on the JavaFX thread, so its changes are painted at once, before the highlights are drawn
+    private static void onFxThread(Runnable command) {
+        if (Platform.isFxApplicationThread()) {
+            command.run();
+        } else {
+            Platform.runLater(command);
+        }
     }
 }
\ No newline at end of file
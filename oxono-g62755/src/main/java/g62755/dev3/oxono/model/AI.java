@@ -1,113 +1,254 @@
 package g62755.dev3.oxono.model;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class AI {
 
     private Game game;
     private Random random;
+    private int[] moves;
+    private Difficulty difficulty;
+    private TranspositionTable table;
+    private AlphaBetaSearch search;
+    private volatile AlphaBetaSearch backgroundSearch;
+    private volatile AlphaBetaSearch ponderSearch;
+    private long ponderHash;
+    private int plannedInsert = -1;
 
     /**
      * Initializes an AI instance with a reference to the game and a random generator.
+     * The AI plays at the easy level, choosing its moves at random.
      * @param game the game instance
      * @param random a random number generator
      */
     public AI(Game game, Random random) {
+        this(game, random, Difficulty.EASY);
+    }
+
+    /**
+     * Initializes an AI instance playing at a given difficulty level.
+     * Above the easy level, turns are chosen by an alpha-beta search within the time budget of the level,
+     * backed by an off-heap transposition table sized by the level.
+     * @param game the game instance
+     * @param random a random number generator
+     * @param difficulty the difficulty level
+     */
+    public AI(Game game, Random random, Difficulty difficulty) {
+        this(game, random, difficulty, difficulty == Difficulty.EASY ? null
+                : new TranspositionTable(difficulty.getTableMegabytes(), TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    /**
+     * Initializes an AI instance playing at a given difficulty level with a given transposition table,
+     * which can be shared by the AIs of many games since entries are keyed by position.
+     * @param game the game instance
+     * @param random a random number generator
+     * @param difficulty the difficulty level
+     * @param table the transposition table of the search, unused at the easy level
+     * @throws IllegalArgumentException if the table is null above the easy level
+     */
+    public AI(Game game, Random random, Difficulty difficulty, TranspositionTable table) {
+        if (difficulty != Difficulty.EASY && table == null) {
+            // play() and chooseTurn() must both search, and the background searches need a table to share
+            throw new IllegalArgumentException("The " + difficulty + " level needs a transposition table.");
+        }
         this.game = game;
         this.random = random;
+        this.moves = new int[game.getMaxMoves()];
+        this.difficulty = difficulty;
+        if (difficulty != Difficulty.EASY) {
+            this.table = table;
+            this.search = new AlphaBetaSearch(game, random, difficulty.getMaxDepth(), difficulty.getTimeBudgetMillis(), table);
+        }
     }
 
     /**
-     * Performs an action for the AI based on the current state of the game.
+     * Returns the difficulty level of the AI.
+     * @return the difficulty level
      */
-    public void play() {
-        if (game.getGameState() == GameState.MOVE) {
-            playRandomMove();
-        } else if (game.getGameState() == GameState.INSERT) {
-            playRandomInsert();
-        }
+    public Difficulty getDifficulty() {
+        return difficulty;
     }
 
-    private void playRandomMove() {
-        List<Position> allPositions = new ArrayList<>();
-        for (int i = 0; i < game.getBoardSize(); i++) {
-            for (int j = 0; j < game.getBoardSize(); j++) {
-                allPositions.add(new Position(i, j));
+    /**
+     * Chooses the next turn of the AI in the background, searching a copy of the game so that the game itself
+     * can keep being read and drawn meanwhile. Cancelling the returned future stops the search.
+     * @param executor the executor running the search
+     * @return a future completed with the chosen turn, to be played with {@link #playTurn(Turn)}
+     */
+    public CompletableFuture<Turn> chooseTurn(Executor executor) {
+        stopPondering();
+        Game snapshot = new Game(game);
+        if (table == null) {
+            return CompletableFuture.supplyAsync(() -> randomTurn(snapshot), executor);
+        }
+        AlphaBetaSearch turnSearch = new AlphaBetaSearch(snapshot, random, difficulty.getMaxDepth(),
+                difficulty.getTimeBudgetMillis(), table);
+        backgroundSearch = turnSearch;
+        CompletableFuture<Turn> turn = CompletableFuture.supplyAsync(turnSearch::searchTurn, executor);
+        turn.whenComplete((chosen, failure) -> {
+            if (turn.isCancelled()) {
+                turnSearch.stop();
             }
+        });
+        return turn;
+    }
+
+    /**
+     * Asks the background search started by {@link #chooseTurn(Executor)} to complete at once with the best turn found so far.
+     */
+    public void stop() {
+        AlphaBetaSearch turnSearch = backgroundSearch;
+        if (turnSearch != null) {
+            turnSearch.stop();
         }
+    }
 
-        boolean moveMade = false;
-        Symbol symbolToMove = (random.nextInt(2) == 0) ? Symbol.X : Symbol.O;
+    /**
+     * Starts searching the position in the background while the opponent thinks, from the opponent's side and
+     * one turn deeper than a normal search. The positions it scores stay in the transposition table, so the
+     * search of the AI's next turn finds most of its tree already scored and gets deeper in the same time.
+     * Pondering stops by itself once the time budget of the level is spent, so that it never fills the table with
+     * more positions than the level's own searches would, and does nothing at the easy level.
+     * It also stops as soon as the AI plays.
+     * Asking again for the position already pondered keeps the running search.
+     * @param executor the executor running the search
+     */
+    public void startPondering(Executor executor) {
+        if (table == null || game.isEnded() || game.generateMoves(moves) == 0) {
+            return;
+        }
+        long hash = game.getHash();
+        if (ponderSearch != null && ponderHash == hash) {
+            return;
+        }
+        stopPondering();
+        AlphaBetaSearch ponder = new AlphaBetaSearch(new Game(game), random, difficulty.getMaxDepth() + 2,
+                difficulty.getTimeBudgetMillis(), table);
+        ponderSearch = ponder;
+        ponderHash = hash;
+        executor.execute(ponder::searchTurn);
+    }
 
-        if (symbolToMove == Symbol.X && game.getToPlay().getX() <= 0) {
-            symbolToMove = Symbol.O;
-        } else if (symbolToMove == Symbol.O && game.getToPlay().getO() <= 0) {
-            symbolToMove = Symbol.X;
+    /**
+     * Stops the background search started by {@link #startPondering(Executor)}, if any.
+     */
+    public void stopPondering() {
+        AlphaBetaSearch ponder = ponderSearch;
+        if (ponder != null) {
+            ponder.stop();
+            ponderSearch = null;
         }
+    }
 
-        while (!moveMade && !allPositions.isEmpty()) {
-            int index = random.nextInt(allPositions.size());
-            Position newPosition = allPositions.remove(index);
-
-            Totem totemToMove = null;
-            Position currentPosition = null;
-
-            for (int i = 0; i < game.getBoardSize(); i++) {
-                for (int j = 0; j < game.getBoardSize(); j++) {
-                    Pawn pawn = game.getPawnAt(i, j);
-                    if (pawn instanceof Totem && pawn.getSymbol() == symbolToMove) {
-                        totemToMove = (Totem) pawn;
-                        currentPosition = new Position(i, j);
-                        break;
-                    }
-                }
-                if (totemToMove != null) {
-                    break;
-                }
+    /**
+     * Plays a turn chosen by {@link #chooseTurn(Executor)} on the game.
+     * @param turn the turn to play
+     */
+    public void playTurn(Turn turn) {
+        stopPondering();
+        if (turn.move() != -1) {
+            playMove(turn.move());
+        }
+        playInsert(turn.insert());
+    }
+
+    /**
+     * Performs an action for the AI based on the current state of the game.
+     */
+    public void play() {
+        stopPondering();
+        if (game.getGameState() == GameState.MOVE) {
+            if (search == null) {
+                playRandomMove();
+            } else {
+                playSearchedMove();
             }
-            if (totemToMove != null && game.isValidMove(currentPosition, newPosition)) {
-                game.move(totemToMove, newPosition);
-                moveMade = true;
+        } else if (game.getGameState() == GameState.INSERT) {
+            if (search == null) {
+                playRandomInsert();
+            } else {
+                playSearchedInsert();
             }
         }
+    }
 
-        if (!moveMade) {
+    private void playRandomMove() {
+        int count = game.generateMoves(moves);
+        if (count == 0) {
             throw new IllegalStateException("No valid move found for AI.");
         }
+
+        playMove(moves[random.nextInt(count)]);
     }
 
     private void playRandomInsert() {
-        Position totemPosition = game.getLastTotemPosition();
-        List<Position> allPositions = new ArrayList<>();
-        for (int i = 0; i < game.getBoardSize(); i++) {
-            for (int j = 0; j < game.getBoardSize(); j++) {
-                if (game.getPawnAt(i, j) == null) {
-                    allPositions.add(new Position(i, j));
-                }
-            }
+        int count = game.generateMoves(moves);
+        if (count == 0) {
+            throw new IllegalStateException("No valid insertion found for AI.");
         }
 
-        boolean insertMade = false;
+        playInsert(moves[random.nextInt(count)]);
+    }
+
+    private Turn randomTurn(Game snapshot) {
+        int[] buffer = new int[snapshot.getMaxMoves()];
+        int move = -1;
+        if (snapshot.getGameState() == GameState.MOVE) {
+            int count = snapshot.generateMoves(buffer);
+            if (count == 0) {
+                throw new IllegalStateException("No valid move found for AI.");
+            }
+            move = buffer[random.nextInt(count)];
+            snapshot.makeMove(move);
+        }
+        int count = snapshot.generateMoves(buffer);
+        if (count == 0) {
+            throw new IllegalStateException("No valid insertion found for AI.");
+        }
+        return new Turn(move, buffer[random.nextInt(count)]);
+    }
 
-        while (!insertMade && !allPositions.isEmpty()) {
-            int index = random.nextInt(allPositions.size());
-            Position insertPosition = allPositions.get(index);
+    private void playSearchedMove() {
+        Turn turn = search.searchTurn();
+        playMove(turn.move());
+        plannedInsert = turn.insert();
+    }
 
-            if (game.isValidInsert(totemPosition, insertPosition)) {
-                Token token = new Token(game.getToPlay().getC(), game.getToInsert());
-                game.insert(token, totemPosition, insertPosition);
-                insertMade = true;
+    private void playSearchedInsert() {
+        int insert = plannedInsert;
+        plannedInsert = -1;
+        if (insert == -1 || !isLegal(insert)) {
+            insert = search.searchTurn().insert();
+        }
+        playInsert(insert);
+    }
 
-                game.checkWin(insertPosition);
-            } else {
-                allPositions.remove(index);
+    private boolean isLegal(int move) {
+        int count = game.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
             }
         }
+        return false;
+    }
 
-        if (!insertMade) {
-            throw new IllegalStateException("No valid insertion found for AI.");
-        }
+    private void playMove(int move) {
+        game.move(game.getTotem(Moves.symbol(move)), toPosition(Moves.cell(move)));
+    }
+
+    private void playInsert(int insert) {
+        Position insertPosition = toPosition(Moves.cell(insert));
+        Token token = new Token(game.getToPlay().getC(), Moves.symbol(insert));
+        game.insert(token, game.getLastTotemPosition(), insertPosition);
+
+        game.checkWin(insertPosition);
+    }
+
+    private Position toPosition(int cell) {
+        return new Position(cell / game.getBoardSize(), cell % game.getBoardSize());
     }
 }
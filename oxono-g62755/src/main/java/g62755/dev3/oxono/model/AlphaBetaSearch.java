@@ -0,0 +1,310 @@
+package g62755.dev3.oxono.model;
+
+import java.util.Random;
+
+/**
+ * Negamax search with alpha-beta pruning and iterative deepening, played on a game through
+ * {@link Game#makeMove} and {@link Game#unmakeMove}.
+ * A turn is two plies, the totem move then the insert, and the score only changes sides after the insert.
+ * Leaves are scored by counting open threes by color and by symbol.
+ */
+public class AlphaBetaSearch {
+
+    private static final int WIN = 1_000_000;
+    private static final int INFINITY = WIN + 1;
+    private static final int COLOR_THREE = 100;
+    private static final int SYMBOL_THREE = 40;
+    private static final int MATE_BOUND = WIN - 10_000;
+
+    private Game game;
+    private Random random;
+    private TranspositionTable table;
+    private int maxDepth;
+    private long timeBudgetMillis;
+    private int[][] buffers;
+    private long deadline;
+    private long nodes;
+    private boolean stopped;
+    private volatile boolean stopRequested;
+    private int completedDepth;
+    private int rootScore;
+    private int generation;
+
+    /**
+     * Creates a search on a game.
+     * @param game the game to search, left unchanged once a search returns
+     * @param random the random generator used to break ties between equal turns
+     * @param maxDepth the deepest search, in plies
+     * @param timeBudgetMillis the time a search may take, in milliseconds
+     */
+    public AlphaBetaSearch(Game game, Random random, int maxDepth, long timeBudgetMillis) {
+        this(game, random, maxDepth, timeBudgetMillis, null);
+    }
+
+    /**
+     * Creates a search on a game that remembers the positions it scored in a transposition table.
+     * @param game the game to search, left unchanged once a search returns
+     * @param random the random generator used to break ties between equal turns
+     * @param maxDepth the deepest search, in plies
+     * @param timeBudgetMillis the time a search may take, in milliseconds
+     * @param table the transposition table to use, or null to search without one
+     */
+    public AlphaBetaSearch(Game game, Random random, int maxDepth, long timeBudgetMillis, TranspositionTable table) {
+        this.game = game;
+        this.random = random;
+        this.table = table;
+        this.maxDepth = Math.max(2, maxDepth);
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.buffers = new int[this.maxDepth + 2][];
+    }
+
+    /**
+     * Returns the number of positions visited by the last search.
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the depth, in plies, of the last iteration the last search completed.
+     * @return the completed depth
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Asks the search to return as soon as possible with the best turn it has found, from any thread.
+     * A stopped search stays stopped: later calls to {@link #searchTurn()} return a legal turn without searching.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Chooses a turn for the player to move, deepening the search until the maximum depth or the time budget is reached.
+     * @return the best turn found
+     * @throws IllegalStateException if the player to move has no legal action
+     */
+    public Turn searchTurn() {
+        deadline = System.nanoTime() + timeBudgetMillis * 1_000_000L;
+        nodes = 0;
+        stopped = false;
+        completedDepth = 0;
+        if (table != null) {
+            generation = table.newSearch();
+        }
+
+        boolean fullTurn = game.getGameState() == GameState.MOVE;
+        int[] rootMoves = buffer(0);
+        int count = game.generateMoves(rootMoves);
+        if (count == 0) {
+            throw new IllegalStateException("No valid move found for AI.");
+        }
+        shuffle(rootMoves, count);
+
+        Turn best = null;
+        for (int depth = fullTurn ? 2 : 1; depth <= maxDepth && !stopRequested; depth += 2) {
+            Turn found = fullTurn ? searchFullTurn(rootMoves, count, depth, best) : searchInsert(rootMoves, count, depth);
+            if (found != null && (!stopped || best == null)) {
+                best = found;
+            }
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            if (Math.abs(rootScore) >= WIN - maxDepth - 2) {
+                break; // the outcome is already forced, searching deeper cannot change it
+            }
+        }
+        if (best == null) {
+            best = firstTurn(rootMoves[0], fullTurn);
+        }
+        return best;
+    }
+
+    private Turn searchFullTurn(int[] moves, int count, int depth, Turn previous) {
+        if (previous != null) {
+            moveToFront(moves, count, previous.move());
+        }
+        int alpha = -INFINITY;
+        Turn best = null;
+        for (int i = 0; i < count && !stopped; i++) {
+            game.makeMove(moves[i]);
+            int[] inserts = buffer(1);
+            int insertCount = game.generateMoves(inserts);
+            if (previous != null && i == 0) {
+                moveToFront(inserts, insertCount, previous.insert());
+            }
+            for (int j = 0; j < insertCount; j++) {
+                game.makeMove(inserts[j]);
+                int score = -negamax(depth - 2, -INFINITY, -alpha, 2);
+                game.unmakeMove();
+                if (stopped) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    best = new Turn(moves[i], inserts[j]);
+                }
+            }
+            game.unmakeMove();
+        }
+        rootScore = alpha;
+        return best;
+    }
+
+    private Turn searchInsert(int[] inserts, int count, int depth) {
+        int alpha = -INFINITY;
+        Turn best = null;
+        for (int i = 0; i < count && !stopped; i++) {
+            game.makeMove(inserts[i]);
+            int score = -negamax(depth - 1, -INFINITY, -alpha, 1);
+            game.unmakeMove();
+            if (!stopped && score > alpha) {
+                alpha = score;
+                best = new Turn(-1, inserts[i]);
+            }
+        }
+        rootScore = alpha;
+        return best;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & 1023) == 0 && (stopRequested || System.nanoTime() > deadline)) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (game.isEnded()) {
+            return -(WIN - ply);
+        }
+        if (depth <= 0) {
+            return evaluate();
+        }
+
+        long key = 0;
+        int tableMove = -1;
+        if (table != null) {
+            key = game.getHash();
+            long entry = table.probe(key);
+            if (entry != 0) {
+                tableMove = TranspositionTable.move(entry);
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (TranspositionTable.depth(entry) >= depth && (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha))) {
+                    return score;
+                }
+            }
+        }
+
+        int[] moves = buffer(ply);
+        int count = game.generateMoves(moves);
+        if (count == 0) {
+            return 0;
+        }
+        if (tableMove != -1) {
+            moveToFront(moves, count, tableMove);
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            game.makeMove(move);
+            int score = Moves.isInsert(move)
+                    ? -negamax(depth - 1, -beta, -alpha, ply + 1)
+                    : negamax(depth - 1, alpha, beta, ply + 1);
+            game.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (table != null) {
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, depth, bound, toTable(best, ply), bestMove, generation);
+        }
+        return best;
+    }
+
+    // Win scores are stored relative to the position, not to the root, so they stay valid wherever the position is reached
+    private static int toTable(int score, int ply) {
+        return score > MATE_BOUND ? score + ply : score < -MATE_BOUND ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        return score > MATE_BOUND ? score - ply : score < -MATE_BOUND ? score + ply : score;
+    }
+
+    private int evaluate() {
+        Player player = game.getToPlay();
+        Color opponent = player.getC() == Color.PINK ? Color.BLACK : Color.PINK;
+        int score = COLOR_THREE * (game.countOpenThrees(player.getC()) - game.countOpenThrees(opponent));
+        // Symbol lines can be completed by either player, the one to move gets the first chance
+        if (player.getX() > 0) {
+            score += SYMBOL_THREE * game.countOpenThrees(Symbol.X);
+        }
+        if (player.getO() > 0) {
+            score += SYMBOL_THREE * game.countOpenThrees(Symbol.O);
+        }
+        return score;
+    }
+
+    private Turn firstTurn(int move, boolean fullTurn) {
+        if (!fullTurn) {
+            return new Turn(-1, move);
+        }
+        game.makeMove(move);
+        int[] inserts = buffer(1);
+        int count = game.generateMoves(inserts);
+        game.unmakeMove();
+        if (count == 0) {
+            throw new IllegalStateException("No valid insertion found for AI.");
+        }
+        return new Turn(move, inserts[0]);
+    }
+
+    private int[] buffer(int ply) {
+        if (buffers[ply] == null) {
+            buffers[ply] = new int[game.getMaxMoves()];
+        }
+        return buffers[ply];
+    }
+
+    private void shuffle(int[] moves, int count) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int move = moves[i];
+            moves[i] = moves[j];
+            moves[j] = move;
+        }
+    }
+
+    private static void moveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * A layer of bits with one bit per cell of a square board.
+ * The bits are stored twice, in row-major and in column-major order, so that a whole row or
+ * a whole column can always be read as a contiguous run of bits.
+ * Boards up to 8x8 fit in a single long per order, bigger boards use a stripe of longs.
+ */
+final class BitBoard {
+
+    private final int size;
+    private final long[] rows;
+    private final long[] columns;
+    private int count;
+
+    /**
+     * Creates an empty layer for a board of the given size.
+     * @param size the size of the board (number of rows and columns)
+     */
+    BitBoard(int size) {
+        this.size = size;
+        int words = (size * size + 63) >>> 6;
+        this.rows = new long[words];
+        this.columns = new long[words];
+    }
+
+    /**
+     * Creates a copy of another layer.
+     * @param other the layer to copy
+     */
+    BitBoard(BitBoard other) {
+        this.size = other.size;
+        this.rows = other.rows.clone();
+        this.columns = other.columns.clone();
+        this.count = other.count;
+    }
+
+    /**
+     * Checks if the bit of a cell is set.
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     * @return true if the bit is set, false otherwise
+     */
+    boolean get(int row, int col) {
+        int i = row * size + col;
+        return (rows[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Checks if the bit of a cell is set.
+     * @param index the index of the cell (row * size + col)
+     * @return true if the bit is set, false otherwise
+     */
+    boolean get(int index) {
+        return (rows[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the bit of a cell.
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     */
+    void set(int row, int col) {
+        int i = row * size + col;
+        if ((rows[i >>> 6] & (1L << i)) == 0) {
+            rows[i >>> 6] |= 1L << i;
+            int j = col * size + row;
+            columns[j >>> 6] |= 1L << j;
+            count++;
+        }
+    }
+
+    /**
+     * Clears the bit of a cell.
+     * @param row the row index of the cell
+     * @param col the column index of the cell
+     */
+    void clear(int row, int col) {
+        int i = row * size + col;
+        if ((rows[i >>> 6] & (1L << i)) != 0) {
+            rows[i >>> 6] &= ~(1L << i);
+            int j = col * size + row;
+            columns[j >>> 6] &= ~(1L << j);
+            count--;
+        }
+    }
+
+    /**
+     * Returns the number of set bits.
+     * @return the number of set bits
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Checks if every bit of a row is set.
+     * @param row the row index
+     * @return true if the row is full, false otherwise
+     */
+    boolean isRowFull(int row) {
+        return isFull(rows, row * size, size);
+    }
+
+    /**
+     * Checks if every bit of a column is set.
+     * @param col the column index
+     * @return true if the column is full, false otherwise
+     */
+    boolean isColumnFull(int col) {
+        return isFull(columns, col * size, size);
+    }
+
+    /**
+     * Checks if no bit is set in a segment of a row.
+     * @param row the row index
+     * @param fromCol the first column of the segment (inclusive)
+     * @param toCol the last column of the segment (exclusive)
+     * @return true if the segment is empty, false otherwise
+     */
+    boolean isRowEmpty(int row, int fromCol, int toCol) {
+        return isEmpty(rows, row * size + fromCol, toCol - fromCol);
+    }
+
+    /**
+     * Checks if no bit is set in a segment of a column.
+     * @param col the column index
+     * @param fromRow the first row of the segment (inclusive)
+     * @param toRow the last row of the segment (exclusive)
+     * @return true if the segment is empty, false otherwise
+     */
+    boolean isColumnEmpty(int col, int fromRow, int toRow) {
+        return isEmpty(columns, col * size + fromRow, toRow - fromRow);
+    }
+
+    /**
+     * Reads a segment of a row as the low bits of a long.
+     * @param row the row index
+     * @param fromCol the first column of the segment, read into bit 0
+     * @param length the length of the segment, at most 64
+     * @return the bits of the segment
+     */
+    long rowBits(int row, int fromCol, int length) {
+        return extract(rows, row * size + fromCol, length);
+    }
+
+    /**
+     * Reads a segment of a column as the low bits of a long.
+     * @param col the column index
+     * @param fromRow the first row of the segment, read into bit 0
+     * @param length the length of the segment, at most 64
+     * @return the bits of the segment
+     */
+    long columnBits(int col, int fromRow, int length) {
+        return extract(columns, col * size + fromRow, length);
+    }
+
+    /**
+     * Finds the first cell, in row-major order, whose bit is clear.
+     * @param from the index of the first cell to look at
+     * @return the index of the cell found, or -1 if every remaining bit is set
+     */
+    int nextClear(int from) {
+        int end = size * size;
+        for (int i = from; i < end; i = ((i >>> 6) + 1) << 6) {
+            long bits = ~rows[i >>> 6] & (-1L << i);
+            if (bits != 0) {
+                int found = (i & ~63) + Long.numberOfTrailingZeros(bits);
+                return found < end ? found : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the next cell of a row, walking away from a column, whose bit has the given value.
+     * @param row the row index
+     * @param col the column to start from (not included in the search)
+     * @param step 1 to walk to the right, -1 to walk to the left
+     * @param value the bit value to look for
+     * @return the column of the cell found, or -1 if the edge of the board is reached first
+     */
+    int nextInRow(int row, int col, int step, boolean value) {
+        return next(rows, row * size, col, step, value);
+    }
+
+    /**
+     * Finds the next cell of a column, walking away from a row, whose bit has the given value.
+     * @param col the column index
+     * @param row the row to start from (not included in the search)
+     * @param step 1 to walk down, -1 to walk up
+     * @param value the bit value to look for
+     * @return the row of the cell found, or -1 if the edge of the board is reached first
+     */
+    int nextInColumn(int col, int row, int step, boolean value) {
+        return next(columns, col * size, row, step, value);
+    }
+
+    private int next(long[] words, int base, int offset, int step, boolean value) {
+        if (step > 0) {
+            int end = base + size;
+            int i = base + offset + 1;
+            while (i < end) {
+                int w = i >>> 6;
+                long bits = (value ? words[w] : ~words[w]) & (-1L << i);
+                if (bits != 0) {
+                    int found = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    return found < end ? found - base : -1;
+                }
+                i = (w + 1) << 6;
+            }
+        } else {
+            int i = base + offset - 1;
+            while (i >= base) {
+                int w = i >>> 6;
+                long bits = (value ? words[w] : ~words[w]) & (-1L >>> (63 - (i & 63)));
+                if (bits != 0) {
+                    int found = (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+                    return found >= base ? found - base : -1;
+                }
+                i = (w << 6) - 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isEmpty(long[] words, int start, int length) {
+        for (int i = start, end = start + length; i < end; i += 64) {
+            if (extract(words, i, Math.min(64, end - i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFull(long[] words, int start, int length) {
+        for (int i = start, end = start + length; i < end; i += 64) {
+            int n = Math.min(64, end - i);
+            if (extract(words, i, n) != mask(n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long extract(long[] words, int start, int length) {
+        int w = start >>> 6;
+        int shift = start & 63;
+        long bits = words[w] >>> shift;
+        if (shift != 0 && shift + length > 64) {
+            bits |= words[w + 1] << (64 - shift);
+        }
+        return bits & mask(length);
+    }
+
+    private static long mask(int length) {
+        return length == 64 ? -1L : (1L << length) - 1;
+    }
+}
@@ -1,14 +1,21 @@
 package g62755.dev3.oxono.model;
 
-import g62755.dev3.util.CommandManager;
-
-import java.util.Stack;
+import java.util.BitSet;
 
 public class Board {
 
     private int size;
-    private Pawn[][] grid;
-    private CommandManager commandManager;
+    private Pawn[] cells;
+    private Position[] positions;
+    private BitBoard occupied;
+    private BitBoard totems;
+    private BitBoard[] colors;
+    private BitBoard[] symbols;
+    private Totem[] totemsBySymbol;
+    private RayTable rays;
+    private long hash;
+    private long version;
+    private int[] targets;
 
     /**
      * Initializes the game board with the specified size.
@@ -16,18 +23,56 @@ public class Board {
      */
     public Board(int size) {
         this.size = size;
-        this.grid = new Pawn[size][size];
-        this.commandManager = new CommandManager(new Stack<>(), new Stack<>());
-
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                this.grid[i][j] = null;
-            }
+        this.cells = new Pawn[size * size];
+        this.positions = new Position[size * size];
+        this.occupied = new BitBoard(size);
+        this.totems = new BitBoard(size);
+        this.colors = new BitBoard[Color.values().length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = new BitBoard(size);
         }
+        this.symbols = new BitBoard[Symbol.values().length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = new BitBoard(size);
+        }
+        this.totemsBySymbol = new Totem[Symbol.values().length];
+        this.rays = RayTable.forSize(size);
 
         int mid = size / 2;
-        this.grid[mid - 1][mid - 1] = new Totem(Color.BLUE, Symbol.X, new Position(mid-1, mid-1));
-        this.grid[mid][mid] = new Totem(Color.BLUE, Symbol.O, new Position(mid, mid));
+        place(mid - 1, mid - 1, new Totem(Color.BLUE, Symbol.X, new Position(mid-1, mid-1)));
+        place(mid, mid, new Totem(Color.BLUE, Symbol.O, new Position(mid, mid)));
+    }
+
+    /**
+     * Creates a copy of a board. Totems are copied, tokens are shared since they cannot change.
+     * @param other the board to copy
+     */
+    public Board(Board other) {
+        this.size = other.size;
+        this.cells = other.cells.clone();
+        this.positions = new Position[size * size];
+        this.occupied = new BitBoard(other.occupied);
+        this.totems = new BitBoard(other.totems);
+        this.colors = new BitBoard[other.colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = new BitBoard(other.colors[i]);
+        }
+        this.symbols = new BitBoard[other.symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = new BitBoard(other.symbols[i]);
+        }
+        this.totemsBySymbol = new Totem[other.totemsBySymbol.length];
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] instanceof Totem totem) {
+                Totem copy = new Totem(totem.getColor(), totem.getSymbol(), totem.getPosition());
+                cells[i] = copy;
+                if (other.totemsBySymbol[totem.getSymbol().ordinal()] == totem) {
+                    totemsBySymbol[totem.getSymbol().ordinal()] = copy;
+                }
+            }
+        }
+        this.rays = other.rays;
+        this.hash = other.hash;
     }
 
     /**
@@ -38,6 +83,20 @@ public class Board {
         return size;
     }
 
+    /**
+     * Returns the position of a cell. Positions are created once per cell and then shared.
+     * @param cell the index of the cell (row * size + col)
+     * @return the position of the cell
+     */
+    public Position getPosition(int cell) {
+        Position position = positions[cell];
+        if (position == null) {
+            position = new Position(cell / size, cell % size);
+            positions[cell] = position;
+        }
+        return position;
+    }
+
     /**
      * Retrieves the pawn at a specific position.
      * @param row the row index of the position
@@ -49,7 +108,24 @@ public class Board {
         if (row < 0 || row >= size || col < 0 || col >= size) {
             throw new IllegalArgumentException("Invalid position.");
         }
-        return grid[row][col];
+        return cells[row * size + col];
+    }
+
+    /**
+     * Returns the Zobrist key of the pawns on the board, kept up to date by every change of a cell.
+     * @return the key of the board
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Returns the totem of a given symbol.
+     * @param symbol the symbol of the totem
+     * @return the totem, or null if it is not on the board
+     */
+    public Totem getTotem(Symbol symbol) {
+        return totemsBySymbol[symbol.ordinal()];
     }
 
     /**
@@ -57,14 +133,15 @@ public class Board {
      * @return true if the board is full, false otherwise
      */
     public boolean isFull() {
-        for (int i = 0; i < size; i++) {
-            for (int j = 0; j < size; j++) {
-                if (isEmpty(new Position(i, j))) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return occupied.count() == size * size;
+    }
+
+    /**
+     * Counts the number of empty cells on the board.
+     * @return the number of empty cells
+     */
+    public int countEmpty() {
+        return size * size - occupied.count();
     }
 
     /**
@@ -73,7 +150,7 @@ public class Board {
      * @return true if the position is empty, false otherwise
      */
     public boolean isEmpty(Position p) {
-        return this.grid[p.x()][p.y()] == null;
+        return !occupied.get(p.x(), p.y());
     }
 
     /**
@@ -104,50 +181,125 @@ public class Board {
     }
 
     private boolean isValidMoveHorizontal(Position from, Position to) {
-
         if (from.x() == to.x()) {
-            int fromY = from.y();
-            int toY = to.y();
-
-            if (fromY < toY) {
-                for (int y = fromY + 1; y < toY; y++) {
-                    if (grid[from.x()][y] != null) {
-                        return false;
-                    }
-                }
-            } else {
-                for (int y = fromY - 1; y > toY; y--) {
-                    if (grid[from.x()][y] != null) {
-                        return false;
-                    }
-                }
-            }
-            return true;
+            int fromY = Math.min(from.y(), to.y()) + 1;
+            int toY = Math.max(from.y(), to.y());
+            return occupied.isRowEmpty(from.x(), fromY, toY);
         }
         return false;
     }
 
     private boolean isValidMoveVertical(Position from, Position to) {
         if (from.y() == to.y()) {
-            int fromX = from.x();
-            int toX = to.x();
-
-            if (fromX < toX) {
-                for (int x = fromX + 1; x < toX; x++) {
-                    if (grid[x][from.y()] != null) {
-                        return false;
-                    }
+            int fromX = Math.min(from.x(), to.x()) + 1;
+            int toX = Math.max(from.x(), to.x());
+            return occupied.isColumnEmpty(from.y(), fromX, toX);
+        }
+        return false;
+    }
+
+    /**
+     * Computes every legal destination of the totem at a position in a single sweep of its row and column.
+     * The result holds the same cells as testing {@link #isValidMove} on every cell of the board.
+     * @param from the position of the totem
+     * @return the legal destinations, as cell indices (row * size + col)
+     */
+    public BitSet getMoveTargets(Position from) {
+        return toBitSet(getMoveTargets(from, targetBuffer(), 0, 0));
+    }
+
+    /**
+     * Computes every legal insertion cell around the totem at a position in a single pass.
+     * The result holds the same cells as testing {@link #isValidInsert} on every cell of the board.
+     * @param posTotem the position of the totem
+     * @return the legal insertion cells, as cell indices (row * size + col)
+     */
+    public BitSet getInsertTargets(Position posTotem) {
+        return toBitSet(getInsertTargets(posTotem, targetBuffer(), 0, 0));
+    }
+
+    private int[] targetBuffer() {
+        if (targets == null) {
+            targets = new int[size * size];
+        }
+        return targets;
+    }
+
+    private BitSet toBitSet(int count) {
+        BitSet set = new BitSet(size * size);
+        for (int i = 0; i < count; i++) {
+            set.set(targets[i]);
+        }
+        return set;
+    }
+
+    /**
+     * Writes every legal destination of the totem at a position into a buffer, without allocating.
+     * Each destination is written as its cell index (row * size + col) combined with a tag.
+     * @param from the position of the totem
+     * @param buffer the buffer to write into, with room for size * size entries after the offset
+     * @param offset the index of the first entry to write
+     * @param tag the bits to or into every entry
+     * @return the index after the last entry written
+     */
+    public int getMoveTargets(Position from, int[] buffer, int offset, int tag) {
+        int cell = from.x() * size + from.y();
+
+        if (!isEnclaved(from)) {
+            for (int d = 0; d < RayTable.DIRECTIONS; d++) {
+                int step = rays.step(d);
+                int to = cell + step;
+                for (int k = rays.length(cell, d); k > 0 && !occupied.get(to); k--, to += step) {
+                    buffer[offset++] = tag | to;
                 }
-            } else {
-                for (int x = fromX - 1; x > toX; x--) {
-                    if (grid[x][from.y()] != null) {
-                        return false;
-                    }
+            }
+        } else if (areLineAndColumnFull(from)) {
+            offset = getEmptyCells(buffer, offset, tag);
+        } else {
+            for (int d = 0; d < RayTable.DIRECTIONS; d++) {
+                int step = rays.step(d);
+                int to = cell + step;
+                int k = rays.length(cell, d);
+                while (k > 0 && occupied.get(to)) {
+                    to += step;
+                    k--;
+                }
+                if (k > 0) {
+                    buffer[offset++] = tag | to;
                 }
             }
-            return true;
         }
-        return false;
+        return offset;
+    }
+
+    /**
+     * Writes every legal insertion cell around the totem at a position into a buffer, without allocating.
+     * The cells written are the ones accepted by {@link #isValidInsert}.
+     * @param posTotem the position of the totem
+     * @param buffer the buffer to write into, with room for size * size entries after the offset
+     * @param offset the index of the first entry to write
+     * @param tag the bits to or into every entry
+     * @return the index after the last entry written
+     */
+    public int getInsertTargets(Position posTotem, int[] buffer, int offset, int tag) {
+        if (isEnclaved(posTotem)) {
+            return getEmptyCells(buffer, offset, tag);
+        }
+        int cell = posTotem.x() * size + posTotem.y();
+        for (int d = 0; d < RayTable.DIRECTIONS; d++) {
+            int to = cell + rays.step(d);
+            if (rays.length(cell, d) > 0 && !occupied.get(to)) {
+                buffer[offset++] = tag | to;
+            }
+        }
+        return offset;
+    }
+
+    private int getEmptyCells(int[] buffer, int offset, int tag) {
+        for (int to = occupied.nextClear(0); to != -1; to = occupied.nextClear(to + 1)) {
+            buffer[offset++] = tag | to;
+        }
+        return offset;
     }
 
     /**
@@ -159,20 +311,10 @@ public class Board {
         int x = p.x();
         int y = p.y();
 
-        if (x > 0 && grid[x - 1][y] == null) {
-            return false;
-        }
-        if (x < size - 1 && grid[x + 1][y] == null) {
-            return false;
-        }
-        if (y > 0 && grid[x][y - 1] == null) {
-            return false;
-        }
-        if (y < size - 1 && grid[x][y + 1] == null) {
-            return false;
-        }
-
-        return true;
+        return (x == 0 || occupied.get(x - 1, y))
+                && (x == size - 1 || occupied.get(x + 1, y))
+                && (y == 0 || occupied.get(x, y - 1))
+                && (y == size - 1 || occupied.get(x, y + 1));
     }
 
     /**
@@ -195,24 +337,18 @@ public class Board {
 
         if (from.x() == to.x()) { // Déplacement horizontal
             int step = (y < to.y()) ? 1 : -1;
-            boolean foundBarrier = false;
-            for (int j = y + step; j != to.y() + step; j += step) {
-                if (grid[x][j] != null) {
-                    foundBarrier = true;
-                } else if (foundBarrier) {
-                    return j == to.y();
-                }
+            int barrier = occupied.nextInRow(x, y, step, true);
+            if (barrier == -1 || (to.y() - barrier) * step < 0) {
+                return false;
             }
+            return occupied.nextInRow(x, barrier, step, false) == to.y();
         } else if (from.y() == to.y()) { // Déplacement vertical
             int step = (x < to.x()) ? 1 : -1;
-            boolean foundBarrier = false;
-            for (int i = x + step; i != to.x() + step; i += step) {
-                if (grid[i][y] != null) {
-                    foundBarrier = true;
-                } else if (foundBarrier) {
-                    return i == to.x();
-                }
+            int barrier = occupied.nextInColumn(y, x, step, true);
+            if (barrier == -1 || (to.x() - barrier) * step < 0) {
+                return false;
             }
+            return occupied.nextInColumn(y, barrier, step, false) == to.x();
         }
 
         return false;
@@ -224,21 +360,7 @@ public class Board {
      * @return true if both the row and column are full, false otherwise
      */
     public boolean areLineAndColumnFull(Position p) {
-        int x = p.x();
-        int y = p.y();
-
-        for (int i = 0; i < size; i++) {
-            if (grid[x][i] == null) {
-                return false;
-            }
-        }
-        for (int j = 0; j < size; j++) {
-            if (grid[j][y] == null) {
-                return false;
-            }
-        }
-
-        return true;
+        return occupied.isRowFull(p.x()) && occupied.isColumnFull(p.y());
     }
 
     /**
@@ -248,7 +370,7 @@ public class Board {
      * @return true if the insertion is valid, false otherwise
      */
     public boolean isValidInsert(Position posTotem, Position posToken) {
-        if (isEnclaved(posTotem) && isEmpty(posToken)) {
+        if (isEnclaved(posTotem) && isWithinBounds(posToken) && isEmpty(posToken)) {
             return true;
         } else {
             return isWithinBounds(posToken) && isAdjacent(posTotem, posToken) && isEmpty(posToken);
@@ -266,6 +388,85 @@ public class Board {
                 (p1.y() == p2.y() && (p1.x() == p2.x() - 1 || p1.x() == p2.x() + 1));
     }
 
+    /**
+     * Checks if the token at a position is part of four aligned tokens, in its row or in its column,
+     * that share its color or its symbol. Totems never count as part of a line.
+     * @param p the position of the token
+     * @return true if the token completes a line, false otherwise
+     * @throws IllegalArgumentException if the position is out of bounds
+     */
+    public boolean completesLine(Position p) {
+        Pawn pawn = getPawnAt(p.x(), p.y());
+        if (pawn == null || pawn instanceof Totem) {
+            return false;
+        }
+        return hasFourAround(colors[pawn.getColor().ordinal()], p.x(), p.y())
+                || hasFourAround(symbols[pawn.getSymbol().ordinal()], p.x(), p.y());
+    }
+
+    private boolean hasFourAround(BitBoard layer, int row, int col) {
+        int fromCol = Math.max(0, col - 3);
+        int fromRow = Math.max(0, row - 3);
+        return hasFour(layer.rowBits(row, fromCol, Math.min(size, col + 4) - fromCol))
+                || hasFour(layer.columnBits(col, fromRow, Math.min(size, row + 4) - fromRow));
+    }
+
+    private static boolean hasFour(long bits) {
+        return (bits & (bits >>> 1) & (bits >>> 2) & (bits >>> 3)) != 0;
+    }
+
+    /**
+     * Counts the open threes of a color: windows of four cells, in a row or a column,
+     * holding three tokens of that color and one empty cell.
+     * @param color the color of the tokens
+     * @return the number of open threes
+     */
+    public int countOpenThrees(Color color) {
+        return countOpenThrees(colors[color.ordinal()]);
+    }
+
+    /**
+     * Counts the open threes of a symbol: windows of four cells, in a row or a column,
+     * holding three tokens of that symbol and one empty cell.
+     * @param symbol the symbol of the tokens
+     * @return the number of open threes
+     */
+    public int countOpenThrees(Symbol symbol) {
+        return countOpenThrees(symbols[symbol.ordinal()]);
+    }
+
+    private int countOpenThrees(BitBoard layer) {
+        int count = 0;
+        for (int line = 0; line < size; line++) {
+            for (int start = 0; start + 4 <= size; start += 61) {
+                int length = Math.min(64, size - start);
+                count += openThrees(layer.rowBits(line, start, length), ~occupied.rowBits(line, start, length), length);
+                count += openThrees(layer.columnBits(line, start, length), ~occupied.columnBits(line, start, length), length);
+            }
+        }
+        return count;
+    }
+
+    private static int openThrees(long tokens, long empty, int length) {
+        long t1 = tokens >>> 1;
+        long t2 = tokens >>> 2;
+        long t3 = tokens >>> 3;
+        long windows = (empty & t1 & t2 & t3)
+                | (tokens & (empty >>> 1) & t2 & t3)
+                | (tokens & t1 & (empty >>> 2) & t3)
+                | (tokens & t1 & t2 & (empty >>> 3));
+        return Long.bitCount(windows & ((1L << (length - 3)) - 1));
+    }
+
+    /**
+     * Returns the version of the board, changed by every pawn placed or removed, so that anything computed from
+     * the pawns can be kept until the version changes.
+     * @return the version of the board
+     */
+    public long getVersion() {
+        return version;
+    }
+
     /**
      * Moves a totem from one position to another.
      * @param t the totem to move
@@ -273,9 +474,9 @@ public class Board {
      */
     public void moveTotem(Totem t, Position p) {
         Position from = t.getPosition();
-        grid[from.x()][from.y()] = null;
+        remove(from.x(), from.y());
         t.updateTotemPosition(p);
-        grid[p.x()][p.y()] = t;
+        place(p.x(), p.y(), t);
     }
 
     /**
@@ -284,7 +485,7 @@ public class Board {
      * @param posToken the position where the token is to be inserted
      */
     public void insertToken(Token t, Position posToken) {
-        grid[posToken.x()][posToken.y()] = t;
+        place(posToken.x(), posToken.y(), t);
     }
 
     /**
@@ -292,6 +493,91 @@ public class Board {
      * @param posToken the position of the token to be removed
      */
     public void removeToken(Position posToken) {
-        grid[posToken.x()][posToken.y()] = null;
+        remove(posToken.x(), posToken.y());
+    }
+
+    /**
+     * Writes the pawns of the board in a compact form, one byte per cell, to be given back to {@link #restore(byte[])}.
+     * @param snapshot the array to write to, of one byte per cell
+     */
+    public void snapshot(byte[] snapshot) {
+        for (int cell = 0; cell < cells.length; cell++) {
+            snapshot[cell] = code(cells[cell]);
+        }
+    }
+
+    /**
+     * Puts back the pawns written by {@link #snapshot(byte[])}, changing only the cells that differ.
+     * The totems stay the same objects.
+     * @param snapshot the pawns, one byte per cell
+     */
+    public void restore(byte[] snapshot) {
+        Totem[] totemObjects = totemsBySymbol.clone();
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (code(cells[cell]) != snapshot[cell]) {
+                remove(cell / size, cell % size);
+            }
+        }
+        for (int cell = 0; cell < cells.length; cell++) {
+            int code = snapshot[cell];
+            if (code != 0 && cells[cell] == null) {
+                Pawn pawn;
+                if (code > 4) {
+                    Totem totem = totemObjects[code - 5];
+                    totem.updateTotemPosition(getPosition(cell));
+                    pawn = totem;
+                } else {
+                    pawn = Token.of(code > 2 ? Color.BLACK : Color.PINK, (code & 1) == 0 ? Symbol.O : Symbol.X);
+                }
+                place(cell / size, cell % size, pawn);
+            }
+        }
+    }
+
+    // 0 for an empty cell, 1 to 4 for the tokens (pink X, pink O, black X, black O), 5 and 6 for the totems X and O
+    private static byte code(Pawn pawn) {
+        if (pawn == null) {
+            return 0;
+        }
+        int symbol = pawn.getSymbol() == Symbol.X ? 0 : 1;
+        if (pawn instanceof Totem) {
+            return (byte) (5 + symbol);
+        }
+        return (byte) (1 + symbol + (pawn.getColor() == Color.BLACK ? 2 : 0));
+    }
+
+    private void place(int row, int col, Pawn pawn) {
+        remove(row, col);
+        cells[row * size + col] = pawn;
+        hash ^= Zobrist.piece(row * size + col, pawn);
+        version++;
+        occupied.set(row, col);
+        if (pawn instanceof Totem) {
+            totems.set(row, col);
+            totemsBySymbol[pawn.getSymbol().ordinal()] = (Totem) pawn;
+        } else {
+            colors[pawn.getColor().ordinal()].set(row, col);
+            symbols[pawn.getSymbol().ordinal()].set(row, col);
+        }
+    }
+
+    private void remove(int row, int col) {
+        Pawn pawn = cells[row * size + col];
+        if (pawn == null) {
+            return;
+        }
+        cells[row * size + col] = null;
+        hash ^= Zobrist.piece(row * size + col, pawn);
+        version++;
+        occupied.clear(row, col);
+        if (pawn instanceof Totem) {
+            totems.clear(row, col);
+            if (totemsBySymbol[pawn.getSymbol().ordinal()] == pawn) {
+                totemsBySymbol[pawn.getSymbol().ordinal()] = null;
+            }
+        } else {
+            colors[pawn.getColor().ordinal()].clear(row, col);
+            symbols[pawn.getSymbol().ordinal()].clear(row, col);
+        }
     }
 }
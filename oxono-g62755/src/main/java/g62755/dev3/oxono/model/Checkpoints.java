@@ -0,0 +1,121 @@
+package g62755.dev3.oxono.model;
+
+import java.util.Arrays;
+
+/**
+ * Snapshots of the board and of the tokens left taken every few plies of a game, so that the game can go to any ply
+ * by restoring the nearest snapshot and playing or undoing the few actions in between. Snapshots are kept in a few
+ * slots, each one reused once the plies it covers fall out of the history.
+ * <p>
+ * A snapshot takes one byte per cell, so their number is bounded whatever the depth of the history: a deeper history
+ * spaces them further apart, and the memory of a game grows with its cells, not with their square. Taking or
+ * restoring a snapshot scans every cell, so snapshots are also never closer than an eighth of the cells in plies:
+ * nearer ones would cost more than the actions they spare.
+ */
+public class Checkpoints {
+
+    private static final int MAX_COUNT = 8;
+    private static final int CELLS_PER_PLY = 8;
+
+    private final int interval;
+    private final int cellCount;
+    private final int[] plies;
+    private final byte[][] cells;
+    private final int[][] tokens;
+
+    /**
+     * Creates an empty set of checkpoints.
+     * @param interval the least number of plies between two checkpoints, raised for a deep history or a large board
+     * @param depth the number of plies of the history
+     * @param cellCount the number of cells of the board
+     */
+    public Checkpoints(int interval, int depth, int cellCount) {
+        this.interval = Math.max(interval, Math.max(Math.ceilDiv(depth, MAX_COUNT), Math.ceilDiv(cellCount, CELLS_PER_PLY)));
+        this.cellCount = cellCount;
+        int slots = depth / this.interval + 2;
+        this.plies = new int[slots];
+        this.cells = new byte[slots][];
+        this.tokens = new int[slots][];
+        Arrays.fill(plies, -1);
+    }
+
+    /**
+     * Returns the number of plies between two checkpoints.
+     * @return the interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Saves the position at a ply, if the ply is one of the checkpoints.
+     * @param ply the ply of the position
+     * @param board the board
+     * @param pink the pink player
+     * @param black the black player
+     */
+    public void save(int ply, Board board, Player pink, Player black) {
+        if (ply % interval != 0) {
+            return;
+        }
+        int slot = slot(ply);
+        if (cells[slot] == null) {
+            cells[slot] = new byte[cellCount];
+            tokens[slot] = new int[4];
+        }
+        board.snapshot(cells[slot]);
+        tokens[slot][0] = pink.getX();
+        tokens[slot][1] = pink.getO();
+        tokens[slot][2] = black.getX();
+        tokens[slot][3] = black.getO();
+        plies[slot] = ply;
+    }
+
+    /**
+     * Finds the checkpoint nearest to a ply among the ones between two plies.
+     * @param ply the ply to reach
+     * @param from the first ply allowed
+     * @param to the last ply allowed
+     * @return the ply of the checkpoint, or -1 if there is none
+     */
+    public int nearest(int ply, int from, int to) {
+        int below = ply - ply % interval;
+        int above = below + interval;
+        boolean hasBelow = below >= from && below <= to && plies[slot(below)] == below;
+        boolean hasAbove = above >= from && above <= to && plies[slot(above)] == above;
+        if (hasBelow && (!hasAbove || ply - below <= above - ply)) {
+            return below;
+        }
+        return hasAbove ? above : -1;
+    }
+
+    /**
+     * Puts back the position saved at a ply.
+     * @param ply the ply of a checkpoint returned by {@link #nearest}
+     * @param board the board
+     * @param pink the pink player
+     * @param black the black player
+     */
+    public void restore(int ply, Board board, Player pink, Player black) {
+        int slot = slot(ply);
+        board.restore(cells[slot]);
+        pink.setTokens(tokens[slot][0], tokens[slot][1]);
+        black.setTokens(tokens[slot][2], tokens[slot][3]);
+    }
+
+    /**
+     * Forgets the checkpoints after a ply, once the actions after it were replaced by new ones.
+     * @param ply the last ply kept
+     */
+    public void discardAfter(int ply) {
+        for (int slot = 0; slot < plies.length; slot++) {
+            if (plies[slot] > ply) {
+                plies[slot] = -1;
+            }
+        }
+    }
+
+    private int slot(int ply) {
+        return (ply / interval) % plies.length;
+    }
+}
@@ -0,0 +1,42 @@
+package g62755.dev3.oxono.model;
+
+public enum Difficulty {
+
+    EASY(0, 0, 0),
+    MEDIUM(6, 500, 16),
+    HARD(24, 2000, 128);
+
+    private final int maxDepth;
+    private final long timeBudgetMillis;
+    private final int tableMegabytes;
+
+    Difficulty(int maxDepth, long timeBudgetMillis, int tableMegabytes) {
+        this.maxDepth = maxDepth;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.tableMegabytes = tableMegabytes;
+    }
+
+    /**
+     * Returns the deepest search, in plies, the AI runs at this level. Easy does not search.
+     * @return the maximum search depth
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the time the AI may spend choosing a turn at this level.
+     * @return the time budget in milliseconds
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * Returns the size of the off-heap transposition table the AI searches with at this level.
+     * @return the size of the table in MB, 0 for no table
+     */
+    public int getTableMegabytes() {
+        return tableMegabytes;
+    }
+}
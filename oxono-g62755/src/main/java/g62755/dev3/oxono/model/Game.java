@@ -1,16 +1,22 @@
 package g62755.dev3.oxono.model;
 
-import g62755.dev3.util.Command;
-import g62755.dev3.util.CommandManager;
+import g62755.dev3.util.EventBus;
 import g62755.dev3.util.Observable;
 import g62755.dev3.util.Observer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
 public class Game implements Observable {
 
+    private static final GameState[] STATES = GameState.values();
+    private static final Symbol[] SYMBOLS = Symbol.values();
+    private static final int CHECKPOINT_INTERVAL = 16;
+
     private Player black;
     private Player pink;
     private Player toPlay;
@@ -21,10 +27,20 @@ public class Game implements Observable {
     private Position lastTotemPosition;
     private Position lastTotemPositionPink;
     private Position lastInsertedPosition;
-    private CommandManager commandManager;
-    private Stack<Token> undoInsertTokens = new Stack<>();
-    private Stack<Token> redoInsertTokens = new Stack<>();
+    private TurnHistory history;
+    private Checkpoints checkpoints;
+    private int endedAt = -1;
+    private long gameHash;
     private List<Observer> observers = new ArrayList<>();
+    private EventBus<GameEvent> events = new EventBus<>();
+    private Map<Integer, BitSet> targets = new HashMap<>();
+    private long targetsVersion = -1;
+    private int[] madeMoves = new int[0];
+    private long[] unmakeInfo = new long[0];
+    private long[] unmakeHash = new long[0];
+    private int madeCount;
+    private boolean logging = true;
+    private GameListener listener;
 
     /**
      * Initializes a new game with two players and a board.
@@ -33,12 +49,77 @@ public class Game implements Observable {
      * @param board the game board
      */
     public Game(Player black, Player pink, Board board) {
+        this(black, pink, board, 2 * board.getSize() * board.getSize());
+    }
+
+    /**
+     * Initializes a new game with two players, a board and an undo history of a given depth.
+     * The default depth, two actions per cell, keeps a whole game; a smaller one bounds the memory of each game.
+     * @param black the black player
+     * @param pink the pink player
+     * @param board the game board
+     * @param historyDepth the number of actions that can be undone, at least 3
+     */
+    public Game(Player black, Player pink, Board board, int historyDepth) {
         this.black = black;
         this.pink = pink;
         this.toPlay = pink;
         this.board = board;
         this.gameState = GameState.MOVE;
-        this.commandManager = new CommandManager(new Stack<>(), new Stack<>());
+        this.history = new TurnHistory(historyDepth);
+        this.checkpoints = new Checkpoints(CHECKPOINT_INTERVAL, historyDepth, board.getSize() * board.getSize());
+        checkpoints.save(0, board, pink, black);
+        this.gameHash = computeGameHash();
+    }
+
+    /**
+     * Creates a copy of a game, with its own board and players, so that it can be searched alongside the original.
+     * The undo history, the observers, the subscribers and the moves made for a search are not copied: the history of the copy
+     * starts at the current ply.
+     * @param other the game to copy
+     */
+    public Game(Game other) {
+        this.black = new Player(other.black);
+        this.pink = new Player(other.pink);
+        this.toPlay = other.toPlay == other.pink ? pink : black;
+        this.toInsert = other.toInsert;
+        this.lastSymbolMovedByPink = other.lastSymbolMovedByPink;
+        this.board = new Board(other.board);
+        this.gameState = other.gameState;
+        this.lastTotemPosition = other.lastTotemPosition;
+        this.lastTotemPositionPink = other.lastTotemPositionPink;
+        this.lastInsertedPosition = other.lastInsertedPosition;
+        this.history = new TurnHistory(other.history.getDepth(), other.history.getPly());
+        this.checkpoints = new Checkpoints(CHECKPOINT_INTERVAL, history.getDepth(), board.getSize() * board.getSize());
+        checkpoints.save(history.getPly(), board, pink, black);
+        this.endedAt = other.endedAt == other.history.getPly() ? history.getPly() : -1;
+        this.gameHash = other.gameHash;
+        this.logging = other.logging;
+    }
+
+    /**
+     * Turns the console log of each move, insert, undo and redo on or off. Logging is on by default.
+     * @param logging true to print each action, false to keep the game silent
+     */
+    public void setLogging(boolean logging) {
+        this.logging = logging;
+    }
+
+    /**
+     * Sets the listener told of every successful move, insert, undo, redo and of the end of the game.
+     * The listener is not copied with the game.
+     * @param listener the listener, or null for none
+     */
+    public void setListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the bus publishing the changes of the game, one batch per action.
+     * @return the event bus of the game
+     */
+    public EventBus<GameEvent> getEvents() {
+        return events;
     }
 
     /**
@@ -107,6 +188,38 @@ public class Game implements Observable {
         return lastTotemPositionPink;
     }
 
+    /**
+     * Returns the Zobrist key of the current position.
+     * The key covers the pawns on the board, the player to move, the game phase, the symbol waiting
+     * to be inserted during the insert phase and the tokens each player has left. Like the key of the board,
+     * the key of the rest of the position is kept up to date by every action, so reading it costs nothing.
+     * @return the key of the position
+     */
+    public long getHash() {
+        return board.getHash() ^ gameHash;
+    }
+
+    // The keys of everything but the board, from scratch, for the rare changes that touch many of them
+    private long computeGameHash() {
+        long hash = phaseKeys();
+        hash ^= tokenKey(pink, Symbol.X) ^ tokenKey(pink, Symbol.O);
+        hash ^= tokenKey(black, Symbol.X) ^ tokenKey(black, Symbol.O);
+        return hash;
+    }
+
+    // The keys of the phase, the player to move and the symbol to insert, to be xored out before a change and in after it
+    private long phaseKeys() {
+        long keys = Zobrist.toPlay(toPlay.getC()) ^ Zobrist.phase(gameState);
+        if (gameState == GameState.INSERT && toInsert != null) {
+            keys ^= Zobrist.toInsert(toInsert);
+        }
+        return keys;
+    }
+
+    private static long tokenKey(Player player, Symbol symbol) {
+        return Zobrist.tokens(player.getC(), symbol, symbol == Symbol.X ? player.getX() : player.getO());
+    }
+
     private void switchPlayer() {
         if (gameState == GameState.ENDED) {
             return;
@@ -118,14 +231,6 @@ public class Game implements Observable {
         }
     }
 
-    private void mustMove(boolean move) {
-        if (move) {
-            gameState = GameState.MOVE;
-        } else {
-            gameState = GameState.INSERT;
-        }
-    }
-
     /**
      * Checks if a specific position is within the board's bounds.
      * @param p the position to check
@@ -145,6 +250,71 @@ public class Game implements Observable {
         return board.isValidMove(from, to);
     }
 
+    /**
+     * Computes every legal destination of the totem at a position. The set is kept until the board changes,
+     * so asking again for the same totem costs nothing; it is shared and must not be changed.
+     * @param from the current position of the totem
+     * @return the legal destinations, as cell indices (row * size + col)
+     */
+    public BitSet getMoveTargets(Position from) {
+        return targets(from, false);
+    }
+
+    /**
+     * Computes every legal insertion cell around the totem at a position, every empty cell if it is enclosed.
+     * The set is kept until the board changes; it is shared and must not be changed.
+     * @param posTotem the position of the totem
+     * @return the legal insertion cells, as cell indices (row * size + col)
+     */
+    public BitSet getInsertTargets(Position posTotem) {
+        return targets(posTotem, true);
+    }
+
+    // Keyed by cell and kind, and dropped as a whole when the version of the board moves on
+    private BitSet targets(Position position, boolean insert) {
+        if (targetsVersion != board.getVersion()) {
+            targets.clear();
+            targetsVersion = board.getVersion();
+        }
+        int key = cell(position) << 1 | (insert ? 1 : 0);
+        BitSet set = targets.get(key);
+        if (set == null) {
+            set = insert ? board.getInsertTargets(position) : board.getMoveTargets(position);
+            targets.put(key, set);
+        }
+        return set;
+    }
+
+    /**
+     * Returns the size a buffer needs to hold every action {@link #generateMoves} can write.
+     * @return the maximum number of legal actions in one phase
+     */
+    public int getMaxMoves() {
+        return 2 * board.getSize() * board.getSize();
+    }
+
+    /**
+     * Writes every legal action of the current phase into a buffer, packed with {@link Moves}, without allocating.
+     * During the move phase these are the destinations of each totem whose symbol the player still has tokens of,
+     * during the insert phase the cells where the token of the moved totem can go.
+     * @param buffer the buffer to write into, at least {@link #getMaxMoves()} long
+     * @return the number of actions written
+     */
+    public int generateMoves(int[] buffer) {
+        int count = 0;
+        if (gameState == GameState.MOVE) {
+            if (toPlay.getX() > 0 && board.getTotem(Symbol.X) != null) {
+                count = board.getMoveTargets(board.getTotem(Symbol.X).getPosition(), buffer, count, Moves.tag(false, Symbol.X));
+            }
+            if (toPlay.getO() > 0 && board.getTotem(Symbol.O) != null) {
+                count = board.getMoveTargets(board.getTotem(Symbol.O).getPosition(), buffer, count, Moves.tag(false, Symbol.O));
+            }
+        } else if (gameState == GameState.INSERT && board.getTotem(toInsert) != null) {
+            count = board.getInsertTargets(board.getTotem(toInsert).getPosition(), buffer, count, Moves.tag(true, toInsert));
+        }
+        return count;
+    }
+
     /**
      * Checks if inserting a token is valid.
      * @param posTotem the position of the totem
@@ -179,11 +349,23 @@ public class Game implements Observable {
         return gameState == GameState.ENDED;
     }
 
+    /**
+     * Returns the winner of an ended game, without checking the board again. A game ends with the loser as the
+     * player to move, whether by a surrender or a completed line.
+     * @return the color of the winner, or null if the game has not ended
+     */
+    public Color getWinner() {
+        if (gameState != GameState.ENDED) {
+            return null;
+        }
+        return toPlay == pink ? black.getC() : pink.getC();
+    }
+
     /**
      * Ends the game, marking the current state as finished.
      */
     public void surrender() {
-        gameState = GameState.ENDED;
+        endGame();
     }
 
     /**
@@ -193,7 +375,7 @@ public class Game implements Observable {
      * @return true if the game has been won, false otherwise
      */
     public boolean checkWin(Position lastInsertedPosition) {
-        boolean won = checkWinDirection(lastInsertedPosition);
+        boolean won = board.completesLine(lastInsertedPosition);
 
         if (won) {
             endGame();
@@ -201,81 +383,29 @@ public class Game implements Observable {
         return won;
     }
 
-    private boolean checkWinDirection(Position pos) {
-        Pawn currentPawn = board.getPawnAt(pos.x(), pos.y());
-        if (currentPawn == null || currentPawn instanceof Totem) {
-            return false;
-        }
-
-        Symbol symbol = currentPawn.getSymbol();
-        Color color = currentPawn.getColor();
-
-        // Vérification horizontale
-        int horizontalSymbolCount = 1;
-        int horizontalColorCount = 1;
-
-        horizontalSymbolCount += countInDirection(pos, 0, -1, symbol, null); // Vers la gauche
-        horizontalSymbolCount += countInDirection(pos, 0, 1, symbol, null);  // Vers la droite
-
-        horizontalColorCount += countInDirection(pos, 0, -1, null, color); // Vers la gauche
-        horizontalColorCount += countInDirection(pos, 0, 1, null, color);  // Vers la droite
-
-        if (horizontalSymbolCount >= 4 || horizontalColorCount >= 4) {
-            return true;
-        }
-
-        // Vérification verticale
-        int verticalSymbolCount = 1;
-        int verticalColorCount = 1;
-
-        verticalSymbolCount += countInDirection(pos, -1, 0, symbol, null); // Vers le haut
-        verticalSymbolCount += countInDirection(pos, 1, 0, symbol, null);  // Vers le bas
-
-        verticalColorCount += countInDirection(pos, -1, 0, null, color); // Vers le haut
-        verticalColorCount += countInDirection(pos, 1, 0, null, color);  // Vers le bas
-
-        return verticalSymbolCount >= 4 || verticalColorCount >= 4;
-    }
-
-    private int countInDirection(Position start, int dx, int dy, Symbol symbol, Color color) {
-        int count = 0;
-        int x = start.x() + dx;
-        int y = start.y() + dy;
-
-        while (board.isWithinBounds(new Position(x, y))) {
-            Pawn nextPawn = board.getPawnAt(x, y);
-            if (nextPawn != null && !(nextPawn instanceof Totem)) {
-                if (symbol != null && nextPawn.getSymbol() == symbol) {
-                    count++;
-                } else if (color != null && nextPawn.getColor() == color) {
-                    count++;
-                } else {
-                    break;
-                }
-                x += dx;
-                y += dy;
-            } else {
-                break;
-            }
-        }
-
-        return count;
-    }
-
     private void endGame() {
+        boolean ending = gameState != GameState.ENDED;
+        gameHash ^= phaseKeys();
         gameState = GameState.ENDED;
-    }
-
-    private Totem findTotemBySymbol(Symbol symbol) {
-        for (int row = 0; row < board.getSize(); row++) {
-            for (int col = 0; col < board.getSize(); col++) {
-                Pawn pawn = getPawnAt(row, col);
-                if (pawn instanceof Totem && pawn.getSymbol() == symbol) {
-                    return (Totem) pawn;
-                }
+        gameHash ^= phaseKeys();
+        endedAt = history.getPly();
+        if (ending) {
+            if (listener != null) {
+                listener.ended();
             }
+            events.publish(new GameEvent.GameEnded());
+            events.publish(new GameEvent.PhaseChanged(gameState, toPlay.getC()));
+            events.flush();
         }
-        return null;
+    }
+
+    /**
+     * Returns the totem of a given symbol.
+     * @param symbol the symbol of the totem
+     * @return the totem, or null if it is not on the board
+     */
+    public Totem getTotem(Symbol symbol) {
+        return board.getTotem(symbol);
     }
 
     /**
@@ -294,7 +424,7 @@ public class Game implements Observable {
             throw new IllegalStateException("You do not have enough tokens of this type to make this move.");
         }
 
-        Totem totemSymbol = findTotemBySymbol(totem.getSymbol());
+        Totem totemSymbol = getTotem(totem.getSymbol());
         if (totemSymbol == null) {
             return false;
         }
@@ -305,19 +435,28 @@ public class Game implements Observable {
         }
 
         if (board.isWithinBounds(newPos) && board.isEmpty(newPos)) {
-            Command moveCommand = new MoveCommand(board, totemSymbol, currentPos, newPos);
-            commandManager.doIt(moveCommand);
-            board.moveTotem(totem, newPos);
+            board.moveTotem(totemSymbol, newPos);
+            record(TurnHistory.move(totemSymbol.getSymbol(), cell(currentPos), cell(newPos)));
+            events.publish(new GameEvent.TotemMoved(totemSymbol.getSymbol(), currentPos, newPos));
             lastTotemPosition = newPos;
+            gameHash ^= phaseKeys();
             toInsert = totemSymbol.getSymbol();
             gameState = GameState.INSERT;
+            gameHash ^= phaseKeys();
 
             if (toPlay == pink) {
                 lastSymbolMovedByPink = totemSymbol.getSymbol();
                 lastTotemPositionPink = newPos;
             }
+            if (listener != null) {
+                listener.moved(Moves.move(totemSymbol.getSymbol(), cell(newPos)));
+            }
+            // the batch of the turn stays open until the insert, so subscribers see the whole turn at once
+            events.publish(new GameEvent.PhaseChanged(gameState, toPlay.getC()));
             notifyObservers();
-            System.out.println("Observer notified : Moving totem " + totemSymbol + " from " + currentPos + " to " + newPos + ".");
+            if (logging) {
+                System.out.println("Observer notified : Moving totem " + totemSymbol + " from " + currentPos + " to " + newPos + ".");
+            }
             return true;
         } else {
             throw new IllegalArgumentException("Invalid Move.");
@@ -340,22 +479,29 @@ public class Game implements Observable {
             boolean enclaved = board.isEnclaved(posTotem);
 
             if (enclaved || board.isValidInsert(posTotem, posToken)) {
-                Command insertCommand = new InsertCommand(board, token, posToken);
-                commandManager.doIt(insertCommand);
                 board.insertToken(token, posToken);
                 lastInsertedPosition = posToken;
-                undoInsertTokens.push(token);
 
+                gameHash ^= phaseKeys() ^ tokenKey(toPlay, token.getSymbol());
                 if (token.getSymbol() == Symbol.X) {
                     getToPlay().decreaseX();
                 } else if (token.getSymbol() == Symbol.O) {
                     getToPlay().decreaseO();
                 }
+                gameHash ^= tokenKey(toPlay, token.getSymbol());
+                record(TurnHistory.insert(token.getColor(), token.getSymbol(), cell(posToken)));
+                events.publish(new GameEvent.TokenInserted(token.getColor(), token.getSymbol(), posToken));
 
                 switchPlayer();
                 gameState = GameState.MOVE;
-                notifyObservers();
-                System.out.println("Observer notified : Inserting token " + token.getSymbol() + " at " + lastInsertedPosition + ".");
+                gameHash ^= phaseKeys();
+                if (listener != null) {
+                    listener.inserted(Moves.insert(token.getSymbol(), cell(posToken)), posTotem);
+                }
+                publishChanges();
+                if (logging) {
+                    System.out.println("Observer notified : Inserting token " + token.getSymbol() + " at " + lastInsertedPosition + ".");
+                }
                 return true;
             } else {
                 throw new IllegalArgumentException("Invalid insert.");
@@ -367,86 +513,302 @@ public class Game implements Observable {
 
     /**
      * Undoes the last command, restoring the previous state of the game.
+     * During an insert, the totem move is taken back; otherwise, the last turn of the opponent and the insert before it.
      */
     public void undo() {
-        if (commandManager.getUndoStack().isEmpty()) {
+        int actions = gameState == GameState.INSERT ? 1 : 3;
+        if (history.getUndoable() < actions) {
             throw new IllegalStateException("No command to undo.");
         }
         if (gameState == GameState.ENDED) {
             throw new IllegalStateException("Game ended.");
         }
 
-        if (gameState == GameState.INSERT) {
-            commandManager.undo();
-            mustMove(true);
-        } else if (gameState == GameState.MOVE) {
-            if (!undoInsertTokens.isEmpty()) {
-                Token aiToken = undoInsertTokens.pop();
-                if (aiToken.getSymbol() == Symbol.X) {
-                    black.increaseX();
-                } else if (aiToken.getSymbol() == Symbol.O) {
-                    black.increaseO();
-                }
-                redoInsertTokens.push(aiToken);
-            }
-            commandManager.undo();
-            commandManager.undo();
-            commandManager.undo();
-            if (!undoInsertTokens.isEmpty()) {
-                Token playerToken = undoInsertTokens.pop();
-                if (playerToken.getSymbol() == Symbol.X) {
-                    pink.increaseX();
-                } else if (playerToken.getSymbol() == Symbol.O) {
-                    pink.increaseO();
-                }
-                redoInsertTokens.push(playerToken);
-            }
-
-            mustMove(false);
+        for (int i = 0; i < actions; i++) {
+            revert(history.undo());
+        }
+        restorePly();
+        if (listener != null) {
+            listener.undone();
+        }
+        publishChanges();
+        if (logging) {
+            System.out.println("Observer notified : Undoing last command.");
         }
-        notifyObservers();
-        System.out.println("Observer notified : Undoing last command.");
     }
 
     /**
      * Redoes the last undone command, restoring the subsequent state of the game.
+     * During an insert, the insert and the turn of the opponent are played again; otherwise, the totem move.
      */
     public void redo() {
-        if (commandManager.getRedoStack().isEmpty()) {
+        int actions = gameState == GameState.INSERT ? 3 : 1;
+        if (history.getRedoable() < actions) {
             throw new IllegalStateException("No command to redo.");
         }
         if (gameState == GameState.ENDED) {
             throw new IllegalStateException("Game ended.");
         }
 
-        if (gameState == GameState.INSERT) {
-            commandManager.redo();
-            if (!redoInsertTokens.isEmpty()) {
-                Token playerToken = redoInsertTokens.pop();
-                if (playerToken.getSymbol() == Symbol.X) {
-                    pink.decreaseX();
-                } else if (playerToken.getSymbol() == Symbol.O) {
-                    pink.decreaseO();
-                }
-            }
-            commandManager.redo();
-            commandManager.redo();
-            if (!redoInsertTokens.isEmpty()) {
-                Token aiToken = redoInsertTokens.pop();
-                if (aiToken.getSymbol() == Symbol.X) {
-                    black.decreaseX();
-                } else if (aiToken.getSymbol() == Symbol.O) {
-                    black.decreaseO();
-                }
+        for (int i = 0; i < actions; i++) {
+            replay(history.redo());
+        }
+        restorePly();
+        if (listener != null) {
+            listener.redone();
+        }
+        publishChanges();
+        if (logging) {
+            System.out.println("Observer notified : Redoing last command.");
+        }
+    }
+
+    /**
+     * Goes to any ply of the history, as a review of the game: the nearest checkpoint of the board is restored,
+     * then the few actions between it and the ply are undone or played again. Observers are notified once.
+     * Playing an action afterwards drops the actions after the ply, as after an undo.
+     * @param ply the ply to go to, between {@link #getFirstPly()} and {@link #getLastPly()}
+     * @throws IllegalArgumentException if the ply is out of the history
+     */
+    public void seek(int ply) {
+        if (ply < history.getFirstPly() || ply > history.getLastPly()) {
+            throw new IllegalArgumentException("No ply " + ply + " in the history.");
+        }
+        int checkpoint = checkpoints.nearest(ply, history.getFirstPly(), history.getLastPly());
+        if (checkpoint != -1 && Math.abs(ply - checkpoint) < Math.abs(ply - history.getPly())) {
+            checkpoints.restore(checkpoint, board, pink, black);
+            history.moveTo(checkpoint);
+            events.publish(new GameEvent.BoardRestored());
+        }
+        while (history.getPly() > ply) {
+            revert(history.undo());
+        }
+        while (history.getPly() < ply) {
+            replay(history.redo());
+        }
+        restorePly();
+        if (listener != null) {
+            listener.sought(ply);
+        }
+        publishChanges();
+        if (logging) {
+            System.out.println("Observer notified : Seeking ply " + ply + ".");
+        }
+    }
+
+    /**
+     * Returns the current ply: the number of totem moves and inserts played since the start of the game,
+     * minus the ones undone.
+     * @return the current ply
+     */
+    public int getPly() {
+        return history.getPly();
+    }
+
+    /**
+     * Returns the first ply the game can go back to, 0 unless the history was too short to keep the whole game.
+     * @return the first ply of the history
+     */
+    public int getFirstPly() {
+        return history.getFirstPly();
+    }
+
+    /**
+     * Returns the last ply the game can go forward to.
+     * @return the ply after the last action that can be redone
+     */
+    public int getLastPly() {
+        return history.getLastPly();
+    }
+
+    private void record(long entry) {
+        int ply = history.getPly();
+        if (history.getRedoable() > 0) {
+            checkpoints.discardAfter(ply);
+        }
+        if (endedAt > ply) {
+            endedAt = -1;
+        }
+        history.record(entry);
+        checkpoints.save(ply + 1, board, pink, black);
+    }
+
+    private void revert(long entry) {
+        if (TurnHistory.isInsert(entry)) {
+            Position position = board.getPosition(TurnHistory.to(entry));
+            board.removeToken(position);
+            events.publish(new GameEvent.TokenRemoved(position));
+            Player owner = TurnHistory.color(entry) == Color.BLACK ? black : pink;
+            if (TurnHistory.symbol(entry) == Symbol.X) {
+                owner.increaseX();
+            } else {
+                owner.increaseO();
             }
+        } else {
+            moveTotem(TurnHistory.symbol(entry), board.getPosition(TurnHistory.from(entry)));
+        }
+    }
 
-            mustMove(true);
-        } else if (gameState == GameState.MOVE) {
-            commandManager.redo();
-            mustMove(false);
+    private void replay(long entry) {
+        if (TurnHistory.isInsert(entry)) {
+            Position position = board.getPosition(TurnHistory.to(entry));
+            board.insertToken(Token.of(TurnHistory.color(entry), TurnHistory.symbol(entry)), position);
+            events.publish(new GameEvent.TokenInserted(TurnHistory.color(entry), TurnHistory.symbol(entry), position));
+            Player owner = TurnHistory.color(entry) == Color.BLACK ? black : pink;
+            if (TurnHistory.symbol(entry) == Symbol.X) {
+                owner.decreaseX();
+            } else {
+                owner.decreaseO();
+            }
+        } else {
+            moveTotem(TurnHistory.symbol(entry), board.getPosition(TurnHistory.to(entry)));
         }
+    }
+
+    private void moveTotem(Symbol symbol, Position to) {
+        Totem totem = board.getTotem(symbol);
+        Position from = totem.getPosition();
+        board.moveTotem(totem, to);
+        events.publish(new GameEvent.TotemMoved(symbol, from, to));
+    }
+
+    // A batch covers a turn: a totem move opens it, and the insert, an undo, a redo, a seek or the end of the game
+    // closes it with the new phase. It is handed to the subscribers before observers are notified
+    private void publishChanges() {
+        events.publish(new GameEvent.PhaseChanged(gameState, toPlay.getC()));
+        events.flush();
         notifyObservers();
-        System.out.println("Observer notified : Redoing last command.");
+    }
+
+    // Turns alternate from pink, each a totem move then an insert, so the phase and the player to move follow
+    // from the ply, and the last moved and inserted positions from the actions just before it
+    private void restorePly() {
+        int ply = history.getPly();
+        gameState = ply == endedAt ? GameState.ENDED : ply % 2 == 0 ? GameState.MOVE : GameState.INSERT;
+        toPlay = (ply / 2) % 2 == 0 ? pink : black;
+
+        int lastMove = ply % 2 == 1 ? ply - 1 : ply - 2;
+        if (lastMove < 0) {
+            toInsert = null;
+            lastTotemPosition = null;
+        } else if (lastMove >= history.getFirstPly()) {
+            long entry = history.get(lastMove);
+            toInsert = TurnHistory.symbol(entry);
+            lastTotemPosition = board.getPosition(TurnHistory.to(entry));
+        }
+        int lastInsert = ply % 2 == 1 ? ply - 2 : ply - 1;
+        if (lastInsert < 0) {
+            lastInsertedPosition = null;
+        } else if (lastInsert >= history.getFirstPly()) {
+            lastInsertedPosition = board.getPosition(TurnHistory.to(history.get(lastInsert)));
+        }
+        int lastPinkMove = ply == 0 ? -1 : (ply - 1) / 4 * 4;
+        if (lastPinkMove < 0) {
+            lastSymbolMovedByPink = null;
+            lastTotemPositionPink = null;
+        } else if (lastPinkMove >= history.getFirstPly()) {
+            long entry = history.get(lastPinkMove);
+            lastSymbolMovedByPink = TurnHistory.symbol(entry);
+            lastTotemPositionPink = board.getPosition(TurnHistory.to(entry));
+        }
+        gameHash = computeGameHash();
+    }
+
+    private int cell(Position position) {
+        return position.x() * board.getSize() + position.y();
+    }
+
+    /**
+     * Plays a packed action for a search, skipping validation, history, logging and observers.
+     * The action must come from {@link #generateMoves} in the current position.
+     * An insert that completes a line ends the game, with the loser left as the player to move.
+     * @param move the packed action to play
+     */
+    public void makeMove(int move) {
+        int size = board.getSize();
+        int cell = Moves.cell(move);
+        long info = (lastTotemPosition == null ? 0 : 1 + lastTotemPosition.x() * size + lastTotemPosition.y());
+        info = (info << 2) | (toInsert == null ? 0 : 1 + toInsert.ordinal());
+        info = (info << 2) | gameState.ordinal();
+        info = (info << 1) | (toPlay == black ? 1 : 0);
+        long hash = gameHash;
+
+        gameHash ^= phaseKeys();
+        if (Moves.isInsert(move)) {
+            info = (info << 28) | (lastInsertedPosition == null ? 0 : 1 + lastInsertedPosition.x() * size + lastInsertedPosition.y());
+            Position posToken = board.getPosition(cell);
+            board.insertToken(Token.of(toPlay.getC(), toInsert), posToken);
+            gameHash ^= tokenKey(toPlay, toInsert);
+            if (toInsert == Symbol.X) {
+                toPlay.decreaseX();
+            } else {
+                toPlay.decreaseO();
+            }
+            gameHash ^= tokenKey(toPlay, toInsert);
+            lastInsertedPosition = posToken;
+            switchPlayer();
+            gameState = board.completesLine(posToken) ? GameState.ENDED : GameState.MOVE;
+        } else {
+            Totem totem = board.getTotem(Moves.symbol(move));
+            Position from = totem.getPosition();
+            info = (info << 28) | (from.x() * size + from.y());
+            board.moveTotem(totem, board.getPosition(cell));
+            lastTotemPosition = totem.getPosition();
+            toInsert = totem.getSymbol();
+            gameState = GameState.INSERT;
+        }
+        gameHash ^= phaseKeys();
+
+        if (madeCount == madeMoves.length) {
+            int capacity = Math.max(16, madeCount * 2);
+            madeMoves = Arrays.copyOf(madeMoves, capacity);
+            unmakeInfo = Arrays.copyOf(unmakeInfo, capacity);
+            unmakeHash = Arrays.copyOf(unmakeHash, capacity);
+        }
+        madeMoves[madeCount] = move;
+        unmakeInfo[madeCount] = info;
+        unmakeHash[madeCount] = hash;
+        madeCount++;
+    }
+
+    /**
+     * Takes back the last action played with {@link #makeMove}, restoring the board, the token counts,
+     * the player to move, the phase and the last moved and inserted positions exactly.
+     * @throws IllegalStateException if no action is left to take back
+     */
+    public void unmakeMove() {
+        if (madeCount == 0) {
+            throw new IllegalStateException("No move to unmake.");
+        }
+        madeCount--;
+        int move = madeMoves[madeCount];
+        long info = unmakeInfo[madeCount];
+        gameHash = unmakeHash[madeCount];
+        int cell = (int) (info & ((1 << 28) - 1));
+        info >>>= 28;
+
+        if (Moves.isInsert(move)) {
+            board.removeToken(board.getPosition(Moves.cell(move)));
+            lastInsertedPosition = cell == 0 ? null : board.getPosition(cell - 1);
+        } else {
+            board.moveTotem(board.getTotem(Moves.symbol(move)), board.getPosition(cell));
+        }
+
+        toPlay = (info & 1) != 0 ? black : pink;
+        info >>>= 1;
+        gameState = STATES[(int) (info & 3)];
+        info >>>= 2;
+        toInsert = (info & 3) == 0 ? null : SYMBOLS[(int) (info & 3) - 1];
+        info >>>= 2;
+        lastTotemPosition = info == 0 ? null : board.getPosition((int) info - 1);
+
+        if (Moves.isInsert(move)) {
+            if (toInsert == Symbol.X) {
+                toPlay.increaseX();
+            } else {
+                toPlay.increaseO();
+            }
+        }
     }
 
     /**
@@ -454,15 +816,25 @@ public class Game implements Observable {
      * @return the number of empty tiles
      */
     public int countEmptyTiles() {
-        int emptyTiles = 0;
-        for (int i =0; i < getBoardSize(); i++) {
-            for (int j =0; j < getBoardSize(); j++) {
-                if (getPawnAt(i,j) == null) {
-                    emptyTiles++;
-                }
-            }
-        }
-        return emptyTiles;
+        return board.countEmpty();
+    }
+
+    /**
+     * Counts the open threes of a color: three tokens of that color and one empty cell in four aligned cells.
+     * @param color the color of the tokens
+     * @return the number of open threes
+     */
+    public int countOpenThrees(Color color) {
+        return board.countOpenThrees(color);
+    }
+
+    /**
+     * Counts the open threes of a symbol: three tokens of that symbol and one empty cell in four aligned cells.
+     * @param symbol the symbol of the tokens
+     * @return the number of open threes
+     */
+    public int countOpenThrees(Symbol symbol) {
+        return board.countOpenThrees(symbol);
     }
 
     /**
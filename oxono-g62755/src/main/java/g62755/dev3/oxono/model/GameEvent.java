@@ -0,0 +1,54 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * A change of a {@link Game}, published on its event bus. The events of one turn, a totem move and its insert,
+ * are published as one batch, so that a view can repaint only the cells they name; an undo, a redo, a seek or the
+ * end of the game also closes the batch, so a subscriber never waits on a turn that will not be completed.
+ */
+public sealed interface GameEvent {
+
+    /**
+     * A totem left a cell for another one.
+     * @param symbol the symbol of the totem
+     * @param from the cell the totem left
+     * @param to the cell of the totem
+     */
+    record TotemMoved(Symbol symbol, Position from, Position to) implements GameEvent {
+    }
+
+    /**
+     * A token was put on a cell.
+     * @param color the color of the token
+     * @param symbol the symbol of the token
+     * @param position the cell of the token
+     */
+    record TokenInserted(Color color, Symbol symbol, Position position) implements GameEvent {
+    }
+
+    /**
+     * A token was taken off a cell by an undo or a seek.
+     * @param position the cell emptied
+     */
+    record TokenRemoved(Position position) implements GameEvent {
+    }
+
+    /**
+     * Any cell may have changed, as when a seek restored a checkpoint of the board.
+     */
+    record BoardRestored() implements GameEvent {
+    }
+
+    /**
+     * The player to play or the expected action changed.
+     * @param state the state of the game
+     * @param toPlay the color of the player to play
+     */
+    record PhaseChanged(GameState state, Color toPlay) implements GameEvent {
+    }
+
+    /**
+     * The game ended, by a surrender or a completed line.
+     */
+    record GameEnded() implements GameEvent {
+    }
+}
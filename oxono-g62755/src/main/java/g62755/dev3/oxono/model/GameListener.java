@@ -0,0 +1,42 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * Receives every change made to a {@link Game} through its public actions, once the action succeeded,
+ * so that the game can be recorded as it is played and rebuilt later by playing the same actions again.
+ */
+public interface GameListener {
+
+    /**
+     * Called after a totem move.
+     * @param move the move, packed by {@link Moves}
+     */
+    void moved(int move);
+
+    /**
+     * Called after an insert.
+     * @param insert the insert, packed by {@link Moves}
+     * @param totem the position of the totem the insert was checked against
+     */
+    void inserted(int insert, Position totem);
+
+    /**
+     * Called after an undo.
+     */
+    void undone();
+
+    /**
+     * Called after a redo.
+     */
+    void redone();
+
+    /**
+     * Called after going to another ply of the history.
+     * @param ply the ply gone to
+     */
+    void sought(int ply);
+
+    /**
+     * Called once when the game ends, by a surrender or a completed line.
+     */
+    void ended();
+}
@@ -0,0 +1,273 @@
+package g62755.dev3.oxono.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monte Carlo tree search with UCT selection and random playouts, shared by every worker of a {@link ForkJoinPool}.
+ * Each worker plays on its own copy of the game through {@link Game#makeMove} and {@link Game#unmakeMove},
+ * and adds a virtual loss to the nodes it walks through so that the other workers explore elsewhere.
+ * A search with a fixed number of playouts on a single worker is fully determined by its seed.
+ */
+public class MonteCarloSearch {
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int VIRTUAL_LOSS = 3;
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    private Game game;
+    private ForkJoinPool pool;
+    private long seed;
+    private AtomicLong playouts = new AtomicLong();
+    private Node lastRoot;
+
+    /**
+     * Creates a search on a game.
+     * @param game the game to search, copied when a search starts and never changed
+     * @param pool the pool whose workers run the playouts, one search thread per unit of parallelism
+     * @param seed the seed of the random generators of the workers
+     */
+    public MonteCarloSearch(Game game, ForkJoinPool pool, long seed) {
+        this.game = game;
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the number of playouts run by the last search.
+     * @return the number of playouts
+     */
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    /**
+     * Returns how often each action of the player to move was tried by the last search.
+     * @return the visits of the children of the root, in the order the actions were generated
+     */
+    int[] getRootVisits() {
+        Node[] children = lastRoot == null ? null : lastRoot.children;
+        if (children == null) {
+            return new int[0];
+        }
+        int[] visits = new int[children.length];
+        for (int i = 0; i < children.length; i++) {
+            visits[i] = children[i].visits.get();
+        }
+        return visits;
+    }
+
+    /**
+     * Chooses a turn for the player to move by running a fixed number of playouts.
+     * @param iterations the number of playouts to run, over all workers
+     * @return the most visited turn
+     */
+    public Turn searchTurn(int iterations) {
+        return search(iterations, Long.MAX_VALUE);
+    }
+
+    /**
+     * Chooses a turn for the player to move by running playouts until a time budget is spent.
+     * @param millis the time budget in milliseconds
+     * @return the most visited turn
+     */
+    public Turn searchTurnFor(long millis) {
+        return search(Integer.MAX_VALUE, System.nanoTime() + millis * 1_000_000L);
+    }
+
+    private Turn search(int iterations, long deadline) {
+        Game root = new Game(game);
+        Node rootNode = new Node(-1, null);
+        lastRoot = rootNode;
+        AtomicInteger remaining = new AtomicInteger(iterations);
+        playouts.set(0);
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            long workerSeed = seed + i;
+            workers.add(() -> {
+                new Worker(new Game(root), new Random(workerSeed)).run(rootNode, remaining, deadline);
+                return null;
+            });
+        }
+        pool.invokeAll(workers).forEach(future -> {
+            try {
+                future.get();
+            } catch (Exception e) {
+                throw new IllegalStateException("Search failed.", e);
+            }
+        });
+
+        Node best = mostVisited(rootNode);
+        if (best == null) {
+            throw new IllegalStateException("No valid move found for AI.");
+        }
+        if (Moves.isInsert(best.move)) {
+            return new Turn(-1, best.move);
+        }
+        Node insert = mostVisited(best);
+        if (insert == null) {
+            root.makeMove(best.move);
+            int[] inserts = new int[root.getMaxMoves()];
+            if (root.generateMoves(inserts) == 0) {
+                throw new IllegalStateException("No valid insertion found for AI.");
+            }
+            return new Turn(best.move, inserts[0]);
+        }
+        return new Turn(best.move, insert.move);
+    }
+
+    private static Node mostVisited(Node node) {
+        Node[] children = node.children;
+        Node best = null;
+        if (children != null) {
+            for (Node child : children) {
+                if (best == null || child.visits.get() > best.visits.get()) {
+                    best = child;
+                }
+            }
+        }
+        return best;
+    }
+
+    private final class Worker {
+
+        private Game game;
+        private Random random;
+        private int[] moves;
+        private List<Node> path = new ArrayList<>();
+
+        private Worker(Game game, Random random) {
+            this.game = game;
+            this.random = random;
+            this.moves = new int[game.getMaxMoves()];
+        }
+
+        private void run(Node root, AtomicInteger remaining, long deadline) {
+            long done = 0;
+            while (remaining.getAndDecrement() > 0 && System.nanoTime() < deadline) {
+                iterate(root);
+                done++;
+            }
+            playouts.addAndGet(done);
+        }
+
+        private void iterate(Node root) {
+            path.clear();
+            Node node = root;
+            path.add(node);
+            node.addVirtualLoss();
+            while (true) {
+                Node[] children = node.children;
+                if (children == null) {
+                    children = expand(node);
+                    if (children.length > 0) {
+                        node = children[random.nextInt(children.length)];
+                        game.makeMove(node.move);
+                        path.add(node);
+                        node.addVirtualLoss();
+                    }
+                    break;
+                }
+                if (children.length == 0) {
+                    break;
+                }
+                node = select(path.get(path.size() - 1), children);
+                game.makeMove(node.move);
+                path.add(node);
+                node.addVirtualLoss();
+            }
+
+            Color winner = playout();
+            for (int i = path.size() - 1; i > 0; i--) {
+                game.unmakeMove();
+            }
+            for (Node visited : path) {
+                visited.update(winner == null ? DRAW : winner == visited.mover ? WIN : 0);
+            }
+        }
+
+        private Node[] expand(Node node) {
+            synchronized (node) {
+                if (node.children == null) {
+                    int count = game.isEnded() ? 0 : game.generateMoves(moves);
+                    Color mover = game.getToPlay().getC();
+                    Node[] children = new Node[count];
+                    for (int i = 0; i < count; i++) {
+                        children[i] = new Node(moves[i], mover);
+                    }
+                    node.children = children;
+                }
+                return node.children;
+            }
+        }
+
+        private Node select(Node parent, Node[] children) {
+            double logVisits = Math.log(Math.max(1, parent.visits.get()));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                int visits = child.visits.get();
+                if (visits == 0) {
+                    return child;
+                }
+                double value = child.score.get() / (WIN * (double) visits) + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        private Color playout() {
+            int plies = 0;
+            Color winner = null;
+            while (true) {
+                if (game.isEnded()) {
+                    winner = game.getToPlay().getC() == Color.PINK ? Color.BLACK : Color.PINK;
+                    break;
+                }
+                int count = game.generateMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                game.makeMove(moves[random.nextInt(count)]);
+                plies++;
+            }
+            for (; plies > 0; plies--) {
+                game.unmakeMove();
+            }
+            return winner;
+        }
+    }
+
+    private static final class Node {
+
+        private final int move;
+        private final Color mover;
+        private final AtomicInteger visits = new AtomicInteger();
+        private final AtomicLong score = new AtomicLong();
+        private volatile Node[] children;
+
+        private Node(int move, Color mover) {
+            this.move = move;
+            this.mover = mover;
+        }
+
+        private void addVirtualLoss() {
+            visits.addAndGet(VIRTUAL_LOSS);
+        }
+
+        private void update(int result) {
+            score.addAndGet(result);
+            visits.addAndGet(1 - VIRTUAL_LOSS);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * Packs the actions of a turn into a single int, as written by {@link Game#generateMoves(int[])}.
+ * The low 28 bits hold the target cell index (row * size + col), the next bit the symbol of the
+ * totem moved or of the token inserted, and the next one tells an insert from a totem move.
+ */
+public final class Moves {
+
+    private static final int CELL_MASK = (1 << 28) - 1;
+    private static final int SYMBOL_BIT = 1 << 28;
+    private static final int INSERT_BIT = 1 << 29;
+
+    private Moves() {
+    }
+
+    /**
+     * Packs the move of a totem.
+     * @param symbol the symbol of the totem
+     * @param cell the index of the destination cell
+     * @return the packed move
+     */
+    public static int move(Symbol symbol, int cell) {
+        return (symbol == Symbol.O ? SYMBOL_BIT : 0) | cell;
+    }
+
+    /**
+     * Packs the insertion of a token.
+     * @param symbol the symbol of the token
+     * @param cell the index of the cell where the token goes
+     * @return the packed insertion
+     */
+    public static int insert(Symbol symbol, int cell) {
+        return INSERT_BIT | move(symbol, cell);
+    }
+
+    /**
+     * Returns the tag shared by every packed action with the given kind and symbol,
+     * so that a cell index can be packed with a single or.
+     * @param insert true for insertions, false for totem moves
+     * @param symbol the symbol of the action
+     * @return the tag to combine with a cell index
+     */
+    static int tag(boolean insert, Symbol symbol) {
+        return insert ? insert(symbol, 0) : move(symbol, 0);
+    }
+
+    /**
+     * Checks if a packed action is an insertion.
+     * @param move the packed action
+     * @return true for an insertion, false for a totem move
+     */
+    public static boolean isInsert(int move) {
+        return (move & INSERT_BIT) != 0;
+    }
+
+    /**
+     * Returns the symbol of a packed action.
+     * @param move the packed action
+     * @return the symbol of the totem moved or of the token inserted
+     */
+    public static Symbol symbol(int move) {
+        return (move & SYMBOL_BIT) != 0 ? Symbol.O : Symbol.X;
+    }
+
+    /**
+     * Returns the target cell of a packed action.
+     * @param move the packed action
+     * @return the index of the target cell (row * size + col)
+     */
+    public static int cell(int move) {
+        return move & CELL_MASK;
+    }
+
+    /**
+     * Returns a readable form of a packed action, such as "X->(0,2)" or "O@(3,1)".
+     * @param move the packed action
+     * @param size the size of the board
+     * @return a string describing the action
+     */
+    public static String toString(int move, int size) {
+        int cell = cell(move);
+        return symbol(move) + (isInsert(move) ? "@" : "->") + new Position(cell / size, cell % size);
+    }
+}
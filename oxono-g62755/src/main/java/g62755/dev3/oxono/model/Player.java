@@ -17,6 +17,16 @@ public class Player {
         this.o = (((size * size) - 4) / 4);
     }
 
+    /**
+     * Creates a copy of a player, with the same color and the same tokens left.
+     * @param other the player to copy
+     */
+    public Player(Player other) {
+        this.c = other.c;
+        this.x = other.x;
+        this.o = other.o;
+    }
+
     /**
      * Decreases the number of 'X' tokens for the player. Throws an exception if none are left.
      * @throws IllegalStateException if the player has no 'X' tokens left
@@ -55,6 +65,16 @@ public class Player {
         o++;
     }
 
+    /**
+     * Sets the number of tokens left, when the game goes back to an earlier position.
+     * @param x the number of 'X' tokens
+     * @param o the number of 'O' tokens
+     */
+    void setTokens(int x, int o) {
+        this.x = x;
+        this.o = o;
+    }
+
     /**
      * Gets the color of the player.
      * @return the player's color
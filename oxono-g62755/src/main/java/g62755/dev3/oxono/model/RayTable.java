@@ -0,0 +1,65 @@
+package g62755.dev3.oxono.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Step and ray length tables for the four orthogonal directions of a square board.
+ * Cells are addressed by their index (row * size + col). Tables are built once per board size
+ * and shared by every board of that size.
+ */
+final class RayTable {
+
+    static final int UP = 0;
+    static final int DOWN = 1;
+    static final int LEFT = 2;
+    static final int RIGHT = 3;
+    static final int DIRECTIONS = 4;
+
+    private static final Map<Integer, RayTable> TABLES = new ConcurrentHashMap<>();
+
+    private final int[] steps;
+    private final int[] lengths;
+
+    private RayTable(int size) {
+        this.steps = new int[]{-size, size, -1, 1};
+        this.lengths = new int[size * size * DIRECTIONS];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int cell = (row * size + col) * DIRECTIONS;
+                lengths[cell + UP] = row;
+                lengths[cell + DOWN] = size - 1 - row;
+                lengths[cell + LEFT] = col;
+                lengths[cell + RIGHT] = size - 1 - col;
+            }
+        }
+    }
+
+    /**
+     * Returns the table for a board size, building it on first use.
+     * @param size the size of the board
+     * @return the table for that size
+     */
+    static RayTable forSize(int size) {
+        return TABLES.computeIfAbsent(size, RayTable::new);
+    }
+
+    /**
+     * Returns the index offset of one step in a direction.
+     * @param direction the direction
+     * @return the offset to add to a cell index
+     */
+    int step(int direction) {
+        return steps[direction];
+    }
+
+    /**
+     * Returns the number of cells between a cell and the edge of the board in a direction.
+     * @param cell the index of the cell
+     * @param direction the direction
+     * @return the number of cells on the ray, the starting cell excluded
+     */
+    int length(int cell, int direction) {
+        return lengths[cell * DIRECTIONS + direction];
+    }
+}
@@ -2,6 +2,16 @@ package g62755.dev3.oxono.model;
 
 public class Token extends Pawn {
 
+    private static final Token[][] SHARED = new Token[Color.values().length][Symbol.values().length];
+
+    static {
+        for (Color color : Color.values()) {
+            for (Symbol symbol : Symbol.values()) {
+                SHARED[color.ordinal()][symbol.ordinal()] = new Token(color, symbol);
+            }
+        }
+    }
+
     /**
      * Creates a new token with a specific color and symbol.
      * @param color  the color of the token
@@ -10,4 +20,15 @@ public class Token extends Pawn {
     public Token(Color color, Symbol symbol) {
         super(color, symbol);
     }
+
+    /**
+     * Returns a shared token of a specific color and symbol.
+     * Tokens hold no state besides their color and symbol, so one instance can stand for all of them.
+     * @param color  the color of the token
+     * @param symbol the symbol of the token
+     * @return the shared token
+     */
+    public static Token of(Color color, Symbol symbol) {
+        return SHARED[color.ordinal()][symbol.ordinal()];
+    }
 }
@@ -0,0 +1,163 @@
+package g62755.dev3.oxono.model;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size transposition table for the alpha-beta search, kept outside the Java heap in a {@link MemorySegment}
+ * so that large tables add no work for the garbage collector.
+ * Each entry takes 16 bytes: the Zobrist key xor-ed with the data, then the data itself
+ * (best move, score, depth, bound type and search generation). Readers check the key against the data, so
+ * entries torn by concurrent writers are seen as misses and the table needs no lock.
+ * <p>
+ * A table can be shared by many searches at once. Each search takes its own generation from {@link #newSearch()}
+ * and passes it to {@link #store}, so searches never race on a shared counter.
+ */
+public class TranspositionTable {
+
+    /**
+     * How a new entry competes with the one already stored in its slot.
+     */
+    public enum ReplacementPolicy {
+        /** Keep the deeper entry, unless the stored one comes from an older search. */
+        DEPTH_PREFERRED,
+        /** Always overwrite the stored entry. */
+        ALWAYS_REPLACE
+    }
+
+    /** The score is exact. */
+    public static final int EXACT = 1;
+    /** The score is a lower bound: the search failed high. */
+    public static final int LOWER = 2;
+    /** The score is an upper bound: the search failed low. */
+    public static final int UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int SCORE_OFFSET = 1 << 20;
+
+    private MemorySegment entries;
+    private long mask;
+    private ReplacementPolicy policy;
+    private final AtomicInteger generations = new AtomicInteger();
+
+    /**
+     * Creates an empty table.
+     * @param megabytes the size of the table in MB, rounded down to a power of two number of entries
+     * @param policy the replacement policy
+     */
+    public TranspositionTable(int megabytes, ReplacementPolicy policy) {
+        long count = Long.highestOneBit(Math.max(1L, ((long) megabytes << 20) / ENTRY_BYTES));
+        this.entries = Arena.ofAuto().allocate(count * ENTRY_BYTES, ENTRY_BYTES);
+        this.mask = count - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the number of entries of the table.
+     * @return the capacity of the table
+     */
+    public long getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Starts a new search, so that depth-preferred replacement stops protecting the entries of older searches.
+     * @return the generation of the search, to be passed to every {@link #store} it makes
+     */
+    public int newSearch() {
+        return generations.incrementAndGet() & 3;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        entries.fill((byte) 0);
+    }
+
+    /**
+     * Looks up a position.
+     * @param key the Zobrist key of the position
+     * @return the packed data of the entry, to be read with the static accessors, or 0 if the position is not stored
+     */
+    public long probe(long key) {
+        long offset = (key & mask) * ENTRY_BYTES;
+        long data = entries.get(ValueLayout.JAVA_LONG, offset + 8);
+        long check = entries.get(ValueLayout.JAVA_LONG, offset);
+        return data != 0 && (check ^ data) == key ? data : 0;
+    }
+
+    /**
+     * Stores the result of a search of a position, subject to the replacement policy.
+     * @param key the Zobrist key of the position
+     * @param depth the depth searched, in plies
+     * @param bound the type of the score: {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     * @param score the score of the position
+     * @param move the best packed move found, or -1 if none
+     * @param generation the generation of the search storing the entry, returned by {@link #newSearch()}
+     */
+    public void store(long key, int depth, int bound, int score, int move, int generation) {
+        long offset = (key & mask) * ENTRY_BYTES;
+        if (policy == ReplacementPolicy.DEPTH_PREFERRED) {
+            long stored = entries.get(ValueLayout.JAVA_LONG, offset + 8);
+            long storedKey = entries.get(ValueLayout.JAVA_LONG, offset) ^ stored;
+            if (stored != 0 && storedKey != key && generation(stored) == generation && depth(stored) > depth) {
+                return;
+            }
+        }
+        long data = (move & 0xFFFFFFFFL)
+                | ((long) (score + SCORE_OFFSET) & 0x1FFFFF) << 32
+                | ((long) Math.min(depth, 127)) << 53
+                | ((long) bound) << 60
+                | ((long) generation) << 62;
+        entries.set(ValueLayout.JAVA_LONG, offset + 8, data);
+        entries.set(ValueLayout.JAVA_LONG, offset, key ^ data);
+    }
+
+    /**
+     * Returns the best move of an entry.
+     * @param data the packed data returned by {@link #probe}
+     * @return the packed move, or -1 if none was stored
+     */
+    public static int move(long data) {
+        return (int) data;
+    }
+
+    /**
+     * Returns the score of an entry.
+     * @param data the packed data returned by {@link #probe}
+     * @return the score
+     */
+    public static int score(long data) {
+        return (int) ((data >>> 32) & 0x1FFFFF) - SCORE_OFFSET;
+    }
+
+    /**
+     * Returns the depth of an entry.
+     * @param data the packed data returned by {@link #probe}
+     * @return the depth searched, in plies
+     */
+    public static int depth(long data) {
+        return (int) ((data >>> 53) & 0x7F);
+    }
+
+    /**
+     * Returns the bound type of an entry.
+     * @param data the packed data returned by {@link #probe}
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}
+     */
+    public static int bound(long data) {
+        return (int) ((data >>> 60) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 62);
+    }
+
+    // Gives tests access to the raw slots, to tear an entry as a concurrent writer would
+    MemorySegment getEntries() {
+        return entries;
+    }
+}
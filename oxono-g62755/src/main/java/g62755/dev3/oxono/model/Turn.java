@@ -0,0 +1,9 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * A turn chosen by an AI: a totem move and the insert that follows it, both packed with {@link Moves}.
+ * @param move the packed totem move, or -1 when the turn only had its insert left to play
+ * @param insert the packed insertion
+ */
+public record Turn(int move, int insert) {
+}
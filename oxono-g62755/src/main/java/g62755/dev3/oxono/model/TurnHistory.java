@@ -0,0 +1,237 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * The undo and redo history of a {@link Game}: the actions played, each one packed in a long, in a ring buffer of
+ * fixed depth. Recording, undoing and redoing an action costs a few array accesses and never allocates; once the
+ * buffer is full, recording an action forgets the oldest one, so a long game keeps the same memory.
+ * <p>
+ * An entry holds an insert flag, the symbol, the color of the token, the destination cell and, for a totem move,
+ * the cell the totem left. Actions are numbered by ply from the start of the game, a totem move and an insert
+ * each being one ply.
+ */
+public class TurnHistory {
+
+    private static final int CELL_BITS = 24;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private final long[] entries;
+    private int first;
+    private int start;
+    private int done;
+    private int undone;
+
+    /**
+     * Creates an empty history.
+     * @param depth the number of actions kept, at least 3 so that a whole turn of each player can be undone
+     */
+    public TurnHistory(int depth) {
+        this(depth, 0);
+    }
+
+    /**
+     * Creates an empty history starting at a given ply, for a game copied in the middle.
+     * @param depth the number of actions kept, at least 3 so that a whole turn of each player can be undone
+     * @param ply the ply of the game when the history starts
+     */
+    public TurnHistory(int depth, int ply) {
+        if (depth < 3) {
+            throw new IllegalArgumentException("A history keeps at least 3 actions.");
+        }
+        this.entries = new long[depth];
+        this.first = ply;
+    }
+
+    /**
+     * Packs a totem move.
+     * @param symbol the symbol of the totem
+     * @param from the cell the totem left
+     * @param to the cell the totem went to
+     * @return the packed move
+     */
+    public static long move(Symbol symbol, int from, int to) {
+        return ((long) from << (3 + CELL_BITS)) | ((long) to << 3) | (symbol == Symbol.O ? 2 : 0);
+    }
+
+    /**
+     * Packs an insert.
+     * @param color the color of the token
+     * @param symbol the symbol of the token
+     * @param cell the cell of the token
+     * @return the packed insert
+     */
+    public static long insert(Color color, Symbol symbol, int cell) {
+        return ((long) cell << 3) | (color == Color.BLACK ? 4 : 0) | (symbol == Symbol.O ? 2 : 0) | 1;
+    }
+
+    /**
+     * Tells whether a packed action is an insert.
+     * @param entry the packed action
+     * @return true for an insert, false for a totem move
+     */
+    public static boolean isInsert(long entry) {
+        return (entry & 1) != 0;
+    }
+
+    /**
+     * Returns the symbol of a packed action.
+     * @param entry the packed action
+     * @return the symbol of the totem moved or of the token inserted
+     */
+    public static Symbol symbol(long entry) {
+        return (entry & 2) != 0 ? Symbol.O : Symbol.X;
+    }
+
+    /**
+     * Returns the color of the token of a packed insert.
+     * @param entry the packed insert
+     * @return the color of the token
+     */
+    public static Color color(long entry) {
+        return (entry & 4) != 0 ? Color.BLACK : Color.PINK;
+    }
+
+    /**
+     * Returns the destination cell of a packed action.
+     * @param entry the packed action
+     * @return the cell the totem went to or the token was inserted in
+     */
+    public static int to(long entry) {
+        return (int) ((entry >>> 3) & CELL_MASK);
+    }
+
+    /**
+     * Returns the cell a totem left in a packed move.
+     * @param entry the packed move
+     * @return the cell the totem left
+     */
+    public static int from(long entry) {
+        return (int) ((entry >>> (3 + CELL_BITS)) & CELL_MASK);
+    }
+
+    /**
+     * Records an action just played, forgetting the actions that could have been redone.
+     * @param entry the packed action
+     */
+    public void record(long entry) {
+        undone = 0;
+        if (done == entries.length) {
+            start = next(start);
+            first++;
+            done--;
+        }
+        entries[index(done)] = entry;
+        done++;
+    }
+
+    /**
+     * Takes back the last action played.
+     * @return the packed action to undo
+     * @throws IllegalStateException if no action is left to undo
+     */
+    public long undo() {
+        if (done == 0) {
+            throw new IllegalStateException("No command to undo.");
+        }
+        done--;
+        undone++;
+        return entries[index(done)];
+    }
+
+    /**
+     * Plays again the last action undone.
+     * @return the packed action to redo
+     * @throws IllegalStateException if no action is left to redo
+     */
+    public long redo() {
+        if (undone == 0) {
+            throw new IllegalStateException("No command to redo.");
+        }
+        long entry = entries[index(done)];
+        done++;
+        undone--;
+        return entry;
+    }
+
+    /**
+     * Moves to a ply without going through the actions in between, once the game has been put back in that position.
+     * @param ply the ply, between {@link #getFirstPly()} and {@link #getLastPly()}
+     * @throws IllegalArgumentException if the ply is out of the history
+     */
+    public void moveTo(int ply) {
+        if (ply < first || ply > getLastPly()) {
+            throw new IllegalArgumentException("No ply " + ply + " in the history.");
+        }
+        undone += first + done - ply;
+        done = ply - first;
+    }
+
+    /**
+     * Returns an action of the history.
+     * @param ply the ply of the action, from {@link #getFirstPly()} included to {@link #getLastPly()} excluded
+     * @return the packed action
+     * @throws IllegalArgumentException if the ply is out of the history
+     */
+    public long get(int ply) {
+        if (ply < first || ply >= getLastPly()) {
+            throw new IllegalArgumentException("No ply " + ply + " in the history.");
+        }
+        return entries[index(ply - first)];
+    }
+
+    /**
+     * Returns the current ply: the number of actions played since the start of the game, minus the ones undone.
+     * @return the current ply
+     */
+    public int getPly() {
+        return first + done;
+    }
+
+    /**
+     * Returns the first ply the history can go back to.
+     * @return the ply of the oldest action kept
+     */
+    public int getFirstPly() {
+        return first;
+    }
+
+    /**
+     * Returns the last ply the history can go forward to.
+     * @return the ply after the last action that can be redone
+     */
+    public int getLastPly() {
+        return first + done + undone;
+    }
+
+    /**
+     * Returns the number of actions that can be undone.
+     * @return the number of actions
+     */
+    public int getUndoable() {
+        return done;
+    }
+
+    /**
+     * Returns the number of actions that can be redone.
+     * @return the number of actions
+     */
+    public int getRedoable() {
+        return undone;
+    }
+
+    /**
+     * Returns the number of actions the history can keep.
+     * @return the depth of the history
+     */
+    public int getDepth() {
+        return entries.length;
+    }
+
+    private int index(int offset) {
+        int index = start + offset;
+        return index >= entries.length ? index - entries.length : index;
+    }
+
+    private int next(int index) {
+        return index + 1 == entries.length ? 0 : index + 1;
+    }
+}
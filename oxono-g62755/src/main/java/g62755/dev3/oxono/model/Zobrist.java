@@ -0,0 +1,79 @@
+package g62755.dev3.oxono.model;
+
+/**
+ * Zobrist keys of the components of a game position.
+ * Keys are derived from a fixed seed with the SplitMix64 mixer instead of random tables, so they
+ * are the same in every run and need no storage whatever the board size.
+ */
+final class Zobrist {
+
+    private static final long SEED = 0x6F786F6E6F5A6FL;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private static final int PIECE = 0;
+    private static final int TO_PLAY = 1;
+    private static final int PHASE = 2;
+    private static final int TO_INSERT = 3;
+    private static final int TOKENS = 4;
+
+    private Zobrist() {
+    }
+
+    /**
+     * Returns the key of a pawn standing on a cell.
+     * @param cell the index of the cell (row * size + col)
+     * @param pawn the pawn on the cell
+     * @return the key of the pawn on that cell
+     */
+    static long piece(int cell, Pawn pawn) {
+        int kind = pawn instanceof Totem
+                ? pawn.getSymbol().ordinal()
+                : Symbol.values().length * (1 + pawn.getColor().ordinal()) + pawn.getSymbol().ordinal();
+        return key(PIECE, ((long) cell << 4) | kind);
+    }
+
+    /**
+     * Returns the key of the player to move.
+     * @param color the color of the player to move
+     * @return the key of the side to move
+     */
+    static long toPlay(Color color) {
+        return key(TO_PLAY, color.ordinal());
+    }
+
+    /**
+     * Returns the key of a game phase.
+     * @param state the state of the game
+     * @return the key of the phase
+     */
+    static long phase(GameState state) {
+        return key(PHASE, state.ordinal());
+    }
+
+    /**
+     * Returns the key of the symbol waiting to be inserted.
+     * @param symbol the symbol to insert
+     * @return the key of the pending symbol
+     */
+    static long toInsert(Symbol symbol) {
+        return key(TO_INSERT, symbol.ordinal());
+    }
+
+    /**
+     * Returns the key of the number of tokens of one symbol a player has left.
+     * @param color the color of the player
+     * @param symbol the symbol of the tokens
+     * @param count the number of tokens left
+     * @return the key of that token count
+     */
+    static long tokens(Color color, Symbol symbol, int count) {
+        return key(TOKENS, ((long) count << 8) | (color.ordinal() << 1) | symbol.ordinal());
+    }
+
+    private static long key(int component, long value) {
+        long z = SEED + (((value << 3) | component) + 1) * GOLDEN;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
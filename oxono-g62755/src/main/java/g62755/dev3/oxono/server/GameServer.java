@@ -0,0 +1,262 @@
+package g62755.dev3.oxono.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import g62755.dev3.oxono.model.*;
+import g62755.dev3.oxono.storage.FsyncPolicy;
+import g62755.dev3.oxono.storage.GameJournal;
+import g62755.dev3.oxono.storage.JournalStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many independent human-versus-AI games over HTTP, each request running on its own virtual thread.
+ * Sessions live in a concurrent map and each one has its own lock, so requests on different games never wait
+ * on each other. AIs of the same level and board size share one transposition table.
+ * <ul>
+ *     <li>{@code POST /games?size=6&difficulty=easy} creates a game</li>
+ *     <li>{@code GET /games/{id}} returns the state of a game</li>
+ *     <li>{@code POST /games/{id}/move?symbol=X&row=1&col=2} moves a totem</li>
+ *     <li>{@code POST /games/{id}/insert?row=1&col=3} inserts a token, then the AI plays its turn</li>
+ *     <li>{@code POST /games/{id}/undo} takes back the last action</li>
+ *     <li>{@code DELETE /games/{id}} closes a game</li>
+ * </ul>
+ * Every answer is the JSON state of the game, or {@code {"error": ...}} with status 400, 404, 405, 409 or 500,
+ * the last one when the journal cannot be written or the AI fails.
+ * Given a {@link JournalStore}, the server journals every game and takes back the games in progress when it starts.
+ */
+public class GameServer {
+
+    private static final int BACKLOG = 4096;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, TranspositionTable> tables = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final JournalStore journals;
+
+    /**
+     * Creates a server listening on a port. The server answers requests once started.
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public GameServer(int port) throws IOException {
+        this(port, null);
+    }
+
+    /**
+     * Creates a server listening on a port and journaling its games, after rebuilding the games of the journals.
+     * The server answers requests once started.
+     * @param port the port to listen on, or 0 for any free port
+     * @param journals the journals of the games, or null to keep games in memory only
+     * @throws IOException if the port cannot be bound or the directory of the journals cannot be read
+     */
+    public GameServer(int port, JournalStore journals) throws IOException {
+        this.journals = journals;
+        if (journals != null) {
+            for (GameJournal journal : journals.recover()) {
+                Game game = journal.getGame();
+                GameSession session = new GameSession(journal.getId(), game, journal.getDifficulty(),
+                        table(journal.getDifficulty(), game.getBoardSize()));
+                sessions.put(session.getId(), session);
+                nextId.accumulateAndGet(session.getId() + 1, Math::max);
+            }
+        }
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/games", this::handle);
+    }
+
+    /**
+     * The entry point of the game server.
+     * @param args Command-line arguments: the port to listen on (default 8080) and the directory where games
+     *             are journaled (default: none, games are kept in memory only).
+     * @throws IOException if the port cannot be bound or the directory of the journals cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        JournalStore journals = args.length > 1 ? new JournalStore(Path.of(args[1]), FsyncPolicy.GROUP, 5, 256) : null;
+        long start = System.nanoTime();
+        GameServer server = new GameServer(args.length > 0 ? Integer.parseInt(args[0]) : 8080, journals);
+        if (journals != null) {
+            System.out.printf("%d games recovered in %.1f ms.%n", server.getSessionCount(), (System.nanoTime() - start) / 1e6);
+        }
+        server.start();
+        System.out.println("Oxono server listening on port " + server.getPort() + ".");
+    }
+
+    /**
+     * Starts answering requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most the given time for the requests in progress.
+     * @param delaySeconds the longest wait, in seconds
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of games hosted.
+     * @return the number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            try {
+                if (path.length == 2) {
+                    requireMethod(method, "POST");
+                    send(exchange, 201, create(query));
+                } else if (path.length == 3) {
+                    GameSession session = session(path[2]);
+                    if (method.equals("DELETE")) {
+                        String state = session.close(journals);
+                        sessions.remove(session.getId(), session);
+                        send(exchange, 200, state);
+                    } else {
+                        requireMethod(method, "GET");
+                        send(exchange, 200, session.state());
+                    }
+                } else if (path.length == 4) {
+                    requireMethod(method, "POST");
+                    GameSession session = session(path[2]);
+                    String answer = switch (path[3]) {
+                        case "move" -> session.move(Symbol.valueOf(required(query, "symbol").toUpperCase()), position(query));
+                        case "insert" -> session.insert(position(query));
+                        case "undo" -> session.undo();
+                        default -> throw new NoSuchElementException("Unknown action " + path[3] + ".");
+                    };
+                    send(exchange, 200, answer);
+                } else {
+                    throw new NoSuchElementException("Unknown path.");
+                }
+            } catch (NoSuchElementException e) {
+                sendError(exchange, 404, e.getMessage());
+            } catch (UnsupportedOperationException e) {
+                sendError(exchange, 405, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            } catch (IllegalStateException e) {
+                sendError(exchange, 409, e.getMessage());
+            } catch (RuntimeException e) {
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
+    private String create(Map<String, String> query) {
+        int size = Integer.parseInt(query.getOrDefault("size", "6"));
+        if (size < 4 || size > 64) {
+            throw new IllegalArgumentException("The board size must be between 4 and 64.");
+        }
+        Difficulty difficulty = Difficulty.valueOf(query.getOrDefault("difficulty", "easy").toUpperCase());
+        long id = nextId.getAndIncrement();
+        Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+        if (journals != null) {
+            try {
+                journals.create(id, game, difficulty);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Game " + id + " could not be journaled.", e);
+            }
+        }
+        GameSession session = new GameSession(id, game, difficulty, table(difficulty, size));
+        sessions.put(session.getId(), session);
+        return session.state();
+    }
+
+    private TranspositionTable table(Difficulty difficulty, int size) {
+        return difficulty == Difficulty.EASY ? null
+                : tables.computeIfAbsent(difficulty + "/" + size, key -> new TranspositionTable(
+                        difficulty.getTableMegabytes(), TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    private GameSession session(String id) {
+        GameSession session;
+        try {
+            session = sessions.get(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            session = null;
+        }
+        if (session == null) {
+            throw new NoSuchElementException("No game " + id + ".");
+        }
+        return session;
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new UnsupportedOperationException("Expected " + expected + ".");
+        }
+    }
+
+    private static Position position(Map<String, String> query) {
+        return new Position(Integer.parseInt(required(query, "row")), Integer.parseInt(required(query, "col")));
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name + ".");
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":\"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
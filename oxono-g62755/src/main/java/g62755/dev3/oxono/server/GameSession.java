@@ -0,0 +1,225 @@
+package g62755.dev3.oxono.server;
+
+import g62755.dev3.oxono.model.*;
+import g62755.dev3.oxono.storage.JournalStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One human-versus-AI game hosted by the {@link GameServer}. The human plays pink, the AI black.
+ * Every request on a session holds its own lock, so sessions never wait on each other. The lock is a
+ * {@link ReentrantLock} rather than a synchronized block so that a virtual thread waiting on it frees its carrier.
+ * A closed session rejects every later request, so no request can change a game whose journal was deleted.
+ */
+public class GameSession {
+
+    private final long id;
+    private final Game game;
+    private final AI ai;
+    private final ReentrantLock lock = new ReentrantLock();
+    private boolean closed;
+
+    /**
+     * Creates a session with a new game.
+     * @param id the id of the session
+     * @param size the size of the board
+     * @param difficulty the level of the AI
+     * @param table the transposition table shared by the AIs of this level and board size, or null at the easy level
+     */
+    public GameSession(long id, int size, Difficulty difficulty, TranspositionTable table) {
+        this(id, new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size)), difficulty, table);
+    }
+
+    /**
+     * Creates a session going on with a game, such as one rebuilt from its journal.
+     * @param id the id of the session
+     * @param game the game, whose console log is turned off
+     * @param difficulty the level of the AI
+     * @param table the transposition table shared by the AIs of this level and board size, or null at the easy level
+     */
+    public GameSession(long id, Game game, Difficulty difficulty, TranspositionTable table) {
+        this.id = id;
+        this.game = game;
+        this.game.setLogging(false);
+        this.ai = new AI(game, new Random(), difficulty, table);
+    }
+
+    /**
+     * Returns the id of the session.
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Moves a totem of the human player.
+     * @param symbol the symbol of the totem
+     * @param to the destination of the totem
+     * @return the state of the game after the move, as JSON
+     * @throws IllegalArgumentException if the move is not valid
+     * @throws IllegalStateException if the game is over or waiting for an insert
+     */
+    public String move(Symbol symbol, Position to) {
+        lock.lock();
+        try {
+            checkOpen();
+            checkHumanTurn(GameState.MOVE);
+            if (!game.move(game.getTotem(symbol), to)) {
+                throw new IllegalArgumentException("Invalid Move.");
+            }
+            return toJson();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts a token of the human player next to the totem just moved, then lets the AI play its turn.
+     * The insert and the AI turn form one change: if the AI fails, the game goes back to before the insert.
+     * @param to the cell of the token
+     * @return the state of the game after the AI turn, as JSON
+     * @throws IllegalArgumentException if the insertion is not valid
+     * @throws IllegalStateException if the game is over or waiting for a totem move
+     * @throws RuntimeException if the AI failed to play, the insert being taken back
+     */
+    public String insert(Position to) {
+        lock.lock();
+        try {
+            checkOpen();
+            checkHumanTurn(GameState.INSERT);
+            int ply = game.getPly();
+            game.insert(new Token(Color.PINK, game.getToInsert()), game.getLastTotemPosition(), to);
+            game.checkWin(to);
+            if (!game.isEnded() && game.countEmptyTiles() > 0) {
+                try {
+                    ai.play();
+                    ai.play();
+                } catch (RuntimeException e) {
+                    game.seek(ply);
+                    throw new RuntimeException("AI turn failed, the insert was taken back.", e);
+                }
+            }
+            return toJson();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes back the last action of the human player, along with the AI turn that followed it.
+     * @return the state of the game after the undo, as JSON
+     * @throws IllegalStateException if there is nothing to undo or the game is over
+     */
+    public String undo() {
+        lock.lock();
+        try {
+            checkOpen();
+            game.undo();
+            return toJson();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the state of the game.
+     * @return the state as JSON
+     */
+    public String state() {
+        lock.lock();
+        try {
+            checkOpen();
+            return toJson();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the session once the requests in progress on it are over, and deletes its journal.
+     * Later requests on the session fail as if it never existed.
+     * @param journals the journals of the games, or null if games are kept in memory only
+     * @return the last state of the game, as JSON
+     * @throws NoSuchElementException if the session is already closed
+     * @throws UncheckedIOException if the journal cannot be deleted, the session being closed all the same
+     */
+    public String close(JournalStore journals) {
+        lock.lock();
+        try {
+            checkOpen();
+            closed = true;
+            if (journals != null) {
+                try {
+                    journals.delete(id);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Game " + id + " could not be deleted.", e);
+                }
+            }
+            return toJson();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new NoSuchElementException("No game " + id + ".");
+        }
+    }
+
+    private void checkHumanTurn(GameState expected) {
+        if (game.isEnded() || game.countEmptyTiles() == 0) {
+            throw new IllegalStateException("Game ended.");
+        }
+        if (game.getGameState() != expected) {
+            throw new IllegalStateException(expected == GameState.MOVE ? "A totem move is expected." : "An insert is expected.");
+        }
+    }
+
+    // Cells are written as two characters: ".." when empty, T then the symbol for a totem, P or B then the symbol for a token
+    private String toJson() {
+        int size = game.getBoardSize();
+        StringBuilder json = new StringBuilder(64 + size * size * 3 + size * 4);
+        json.append("{\"id\":").append(id)
+                .append(",\"size\":").append(size)
+                .append(",\"state\":\"").append(game.getGameState()).append('"')
+                .append(",\"toPlay\":\"").append(game.getToPlay().getC()).append('"')
+                .append(",\"winner\":").append(winner())
+                .append(",\"pink\":{\"x\":").append(game.getPlayerTokenCount(Color.PINK, Symbol.X))
+                .append(",\"o\":").append(game.getPlayerTokenCount(Color.PINK, Symbol.O)).append('}')
+                .append(",\"black\":{\"x\":").append(game.getPlayerTokenCount(Color.BLACK, Symbol.X))
+                .append(",\"o\":").append(game.getPlayerTokenCount(Color.BLACK, Symbol.O)).append('}')
+                .append(",\"board\":[");
+        for (int row = 0; row < size; row++) {
+            json.append(row == 0 ? "\"" : ",\"");
+            for (int col = 0; col < size; col++) {
+                Pawn pawn = game.getPawnAt(row, col);
+                if (col > 0) {
+                    json.append(' ');
+                }
+                if (pawn == null) {
+                    json.append("..");
+                } else {
+                    json.append(pawn instanceof Totem ? 'T' : pawn.getColor() == Color.PINK ? 'P' : 'B')
+                            .append(pawn.getSymbol());
+                }
+            }
+            json.append('"');
+        }
+        return json.append("]}").toString();
+    }
+
+    // Reads the outcome without checking the board for a line, which would end the game as a side effect
+    private String winner() {
+        Color winner = game.getWinner();
+        if (winner != null) {
+            return "\"" + winner + "\"";
+        }
+        return game.countEmptyTiles() == 0 ? "\"DRAW\"" : "null";
+    }
+}
@@ -0,0 +1,42 @@
+package g62755.dev3.oxono.simulation;
+
+import g62755.dev3.oxono.storage.GameArchiveWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class Main {
+
+    /**
+     * The entry point of the headless self-play runner. Plays AI-versus-AI games and prints their statistics.
+     * @param args Command-line arguments, all optional: number of games (default 100000), board size (default 6),
+     *             number of threads (default: all cores), pink strategy, black strategy (EASY, MEDIUM, HARD or MCTS, default EASY), seed (default 0)
+     *             and the data file of an archive to append the games to (default: none).
+     * @throws IOException if the archive cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Strategy pink = args.length > 3 ? Strategy.valueOf(args[3].toUpperCase()) : Strategy.EASY;
+        Strategy black = args.length > 4 ? Strategy.valueOf(args[4].toUpperCase()) : Strategy.EASY;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+        GameArchiveWriter archive = args.length > 6 ? new GameArchiveWriter(Path.of(args[6])) : null;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            System.out.println("Playing " + games + " games on a " + size + "x" + size + " board, pink " + pink
+                    + " against black " + black + ", on " + threads + " threads.");
+            SelfPlay selfPlay = new SelfPlay(size, pink, black, pool, seed);
+            selfPlay.setArchive(archive);
+            SelfPlayReport report = selfPlay.run(games);
+            System.out.println(report);
+        } finally {
+            pool.shutdown();
+            if (archive != null) {
+                archive.close();
+            }
+        }
+    }
+}
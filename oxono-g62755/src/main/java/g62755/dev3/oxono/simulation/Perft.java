@@ -0,0 +1,141 @@
+package g62755.dev3.oxono.simulation;
+
+import g62755.dev3.oxono.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the positions reached after a number of turns from a position, following every legal totem move
+ * (enclave jumps included) and every legal insert, as given by {@link Game#generateMoves}.
+ * Games that end before the last turn are not followed further. The counts serve both as a measure of
+ * move generation speed and as a reference that any rewrite of the move rules must reproduce.
+ */
+public class Perft {
+
+    private static final int SPLIT_PLIES = 2;
+
+    private Perft() {
+    }
+
+    /**
+     * The entry point of the perft tool. Prints the count and the speed of each depth up to the given one.
+     * @param args Command-line arguments, all optional: board size (default 6), number of turns (default 3)
+     *             and number of threads (default 1, the single-threaded mode).
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int turns = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            for (int depth = 1; depth <= turns; depth++) {
+                Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+                long start = System.nanoTime();
+                long nodes = pool == null ? perft(game, depth) : perft(game, depth, pool);
+                long nanos = System.nanoTime() - start;
+                System.out.printf("perft(%d) = %d in %.3f s (%.0f nodes/s)%n",
+                        depth, nodes, nanos / 1e9, nanos == 0 ? 0 : nodes * 1e9 / nanos);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Counts the positions reached after a number of turns, on the calling thread.
+     * @param game the game to start from, left unchanged
+     * @param turns the number of turns, a totem move then an insert, or a lone insert if the game is waiting for one
+     * @return the number of positions reached
+     */
+    public static long perft(Game game, int turns) {
+        return count(game, plies(game, turns), new int[plies(game, turns) + 1][]);
+    }
+
+    /**
+     * Counts the positions reached after a number of turns, splitting the first actions over the workers of a pool.
+     * @param game the game to start from, left unchanged
+     * @param turns the number of turns, a totem move then an insert, or a lone insert if the game is waiting for one
+     * @param pool the pool to count on
+     * @return the number of positions reached
+     */
+    public static long perft(Game game, int turns, ForkJoinPool pool) {
+        return pool.invoke(new PerftTask(new Game(game), plies(game, turns)));
+    }
+
+    private static int plies(Game game, int turns) {
+        if (turns <= 0) {
+            return 0;
+        }
+        return 2 * turns - (game.getGameState() == GameState.INSERT ? 1 : 0);
+    }
+
+    private static long count(Game game, int plies, int[][] buffers) {
+        if (plies == 0) {
+            return 1;
+        }
+        if (game.isEnded()) {
+            return 0;
+        }
+        if (buffers[plies] == null) {
+            buffers[plies] = new int[game.getMaxMoves()];
+        }
+        int[] moves = buffers[plies];
+        int count = game.generateMoves(moves);
+        if (plies == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            nodes += count(game, plies - 1, buffers);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    // Tasks are serializable through ForkJoinTask but never serialized, so the game is transient
+    private static final class PerftTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Game game;
+        private final int plies;
+        private final int split;
+
+        private PerftTask(Game game, int plies) {
+            this(game, plies, SPLIT_PLIES);
+        }
+
+        private PerftTask(Game game, int plies, int split) {
+            this.game = game;
+            this.plies = plies;
+            this.split = split;
+        }
+
+        @Override
+        protected Long compute() {
+            if (split == 0 || plies <= 1 || game.isEnded()) {
+                return count(game, plies, new int[plies + 1][]);
+            }
+            int[] moves = new int[game.getMaxMoves()];
+            int count = game.generateMoves(moves);
+            List<PerftTask> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Game child = new Game(game);
+                child.makeMove(moves[i]);
+                tasks.add(new PerftTask(child, plies - 1, split - 1));
+            }
+            long nodes = 0;
+            for (PerftTask task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+}
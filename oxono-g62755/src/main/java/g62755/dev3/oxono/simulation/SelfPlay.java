@@ -0,0 +1,216 @@
+package g62755.dev3.oxono.simulation;
+
+import g62755.dev3.oxono.model.*;
+import g62755.dev3.oxono.storage.GameArchiveWriter;
+import g62755.dev3.oxono.storage.GameRecord;
+import g62755.dev3.oxono.storage.Outcome;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Plays AI-versus-AI games without any view, spread over the workers of a {@link ForkJoinPool}.
+ * Each worker keeps one game and plays it through {@link Game#makeMove} and {@link Game#unmakeMove},
+ * so games need no observers, no history and almost no allocation. Worker i plays games i, i + n, i + 2n...
+ * with its own random generator seeded with seed + i, so a batch of EASY and MCTS players is reproducible for a
+ * given number of workers. MEDIUM and HARD searches deepen until a wall-clock budget runs out, so how deep they get,
+ * and so the turns they choose, depend on the speed of the machine and its load: their batches are not reproducible.
+ */
+public class SelfPlay {
+
+    private int size;
+    private Strategy pink;
+    private Strategy black;
+    private ForkJoinPool pool;
+    private long seed;
+    private GameArchiveWriter archive;
+
+    /**
+     * Creates a self-play runner.
+     * @param size the size of the board
+     * @param pink the strategy of the pink player
+     * @param black the strategy of the black player
+     * @param pool the pool whose workers play the games, one game at a time per unit of parallelism
+     * @param seed the seed of the random generators of the workers
+     */
+    public SelfPlay(int size, Strategy pink, Strategy black, ForkJoinPool pool, long seed) {
+        this.size = size;
+        this.pink = pink;
+        this.black = black;
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    /**
+     * Appends every game played from now on to an archive.
+     * @param archive the archive to append to, or null to stop archiving
+     */
+    public void setArchive(GameArchiveWriter archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Plays a batch of games.
+     * @param games the number of games to play
+     * @return the results of the batch
+     */
+    public SelfPlayReport run(int games) {
+        int workers = pool.getParallelism();
+        List<Callable<SelfPlayReport>> tasks = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            int first = i;
+            tasks.add(() -> play(first, workers, games));
+        }
+
+        long start = System.nanoTime();
+        SelfPlayReport report = new SelfPlayReport(0, 0, 0, 0, 0, 0, 0, 0);
+        for (Future<SelfPlayReport> future : pool.invokeAll(tasks)) {
+            try {
+                report = report.plus(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Self-play interrupted.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Self-play failed.", e.getCause());
+            }
+        }
+        return report.withNanos(System.nanoTime() - start);
+    }
+
+    private SelfPlayReport play(int first, int step, int games) {
+        Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+        Random random = new Random(seed + first);
+        // the Monte Carlo tree search runs on a pool of its own, one worker, so that its playouts stay reproducible
+        ForkJoinPool searchPool = pink == Strategy.MCTS || black == Strategy.MCTS ? new ForkJoinPool(1) : null;
+        try {
+            Worker worker = new Worker(game, random, search(game, random, pink, searchPool, seed + first),
+                    search(game, random, black, searchPool, seed + first), archive);
+            for (int i = first; i < games; i += step) {
+                worker.playGame();
+            }
+            return new SelfPlayReport(worker.games, worker.pinkWins, worker.blackWins, worker.draws,
+                    worker.turns, worker.decisions, worker.branching, 0);
+        } finally {
+            if (searchPool != null) {
+                searchPool.shutdown();
+            }
+        }
+    }
+
+    private static Supplier<Turn> search(Game game, Random random, Strategy strategy, ForkJoinPool searchPool,
+                                         long searchSeed) {
+        if (strategy == Strategy.MCTS) {
+            MonteCarloSearch search = new MonteCarloSearch(game, searchPool, searchSeed);
+            return () -> search.searchTurn(strategy.getPlayouts());
+        }
+        Difficulty difficulty = strategy.getDifficulty();
+        if (difficulty == Difficulty.EASY) {
+            return null;
+        }
+        TranspositionTable table = new TranspositionTable(difficulty.getTableMegabytes(),
+                TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        AlphaBetaSearch search = new AlphaBetaSearch(game, random, difficulty.getMaxDepth(),
+                difficulty.getTimeBudgetMillis(), table);
+        return search::searchTurn;
+    }
+
+    private static final class Worker {
+
+        private Game game;
+        private Random random;
+        private Supplier<Turn> pinkSearch;
+        private Supplier<Turn> blackSearch;
+        private GameArchiveWriter archive;
+        private int[] moves;
+        private int[] played;
+        private long games;
+        private long pinkWins;
+        private long blackWins;
+        private long draws;
+        private long turns;
+        private long decisions;
+        private long branching;
+
+        private Worker(Game game, Random random, Supplier<Turn> pinkSearch, Supplier<Turn> blackSearch,
+                       GameArchiveWriter archive) {
+            this.game = game;
+            this.random = random;
+            this.pinkSearch = pinkSearch;
+            this.blackSearch = blackSearch;
+            this.archive = archive;
+            this.moves = new int[game.getMaxMoves()];
+            this.played = new int[2 * game.getBoardSize() * game.getBoardSize() + 2];
+        }
+
+        // Plays one game from the initial position, then takes every action back to leave the game as it was
+        private void playGame() {
+            int plies = 0;
+            int plannedInsert = -1;
+            while (!game.isEnded()) {
+                int count = game.generateMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                decisions++;
+                branching += count;
+
+                Supplier<Turn> search = game.getToPlay().getC() == Color.PINK ? pinkSearch : blackSearch;
+                int move;
+                if (search == null) {
+                    move = moves[random.nextInt(count)];
+                } else if (plannedInsert != -1) {
+                    move = plannedInsert;
+                    plannedInsert = -1;
+                } else {
+                    Turn turn = search.get();
+                    move = turn.move() == -1 ? turn.insert() : turn.move();
+                    plannedInsert = turn.move() == -1 ? -1 : turn.insert();
+                }
+                game.makeMove(move);
+                played[plies++] = move;
+                if (Moves.isInsert(move)) {
+                    turns++;
+                }
+            }
+
+            games++;
+            Outcome outcome;
+            if (!game.isEnded()) {
+                draws++;
+                outcome = Outcome.DRAW;
+            } else if (game.getToPlay().getC() == Color.PINK) {
+                blackWins++; // the player left to move after a winning insert is the loser
+                outcome = Outcome.BLACK_WIN;
+            } else {
+                pinkWins++;
+                outcome = Outcome.PINK_WIN;
+            }
+            if (archive != null) {
+                archive(plies, outcome);
+            }
+            for (; plies > 0; plies--) {
+                game.unmakeMove();
+            }
+        }
+
+        private void archive(int plies, Outcome outcome) {
+            List<Turn> turns = new ArrayList<>(plies / 2 + 1);
+            for (int i = 0; i < plies; i += 2) {
+                turns.add(new Turn(played[i], i + 1 < plies ? played[i + 1] : -1));
+            }
+            try {
+                archive.append(new GameRecord(game.getBoardSize(), 0, turns, outcome));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package g62755.dev3.oxono.simulation;
+
+/**
+ * The results of a batch of self-play games.
+ * @param games the number of games played
+ * @param pinkWins the number of games won by pink
+ * @param blackWins the number of games won by black
+ * @param draws the number of drawn games
+ * @param turns the number of turns played over all games, a turn ending with an insert
+ * @param decisions the number of actions chosen over all games, totem moves and inserts
+ * @param branching the number of legal actions summed over every decision
+ * @param nanos the wall-clock time of the batch, in nanoseconds
+ */
+public record SelfPlayReport(long games, long pinkWins, long blackWins, long draws,
+                             long turns, long decisions, long branching, long nanos) {
+
+    /**
+     * Adds the counts of another report to this one, keeping the longest time.
+     * @param other the report to add
+     * @return the combined report
+     */
+    public SelfPlayReport plus(SelfPlayReport other) {
+        return new SelfPlayReport(games + other.games, pinkWins + other.pinkWins, blackWins + other.blackWins,
+                draws + other.draws, turns + other.turns, decisions + other.decisions, branching + other.branching,
+                Math.max(nanos, other.nanos));
+    }
+
+    /**
+     * Returns the same counts with another time.
+     * @param nanos the wall-clock time of the batch, in nanoseconds
+     * @return the report with the new time
+     */
+    public SelfPlayReport withNanos(long nanos) {
+        return new SelfPlayReport(games, pinkWins, blackWins, draws, turns, decisions, branching, nanos);
+    }
+
+    /**
+     * Returns the number of games played per second.
+     * @return the throughput of the batch
+     */
+    public double gamesPerSecond() {
+        return nanos == 0 ? 0 : games * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the average number of turns of a game.
+     * @return the average game length in turns
+     */
+    public double averageLength() {
+        return games == 0 ? 0 : (double) turns / games;
+    }
+
+    /**
+     * Returns the average number of legal actions the player to move could choose from.
+     * @return the average branching factor
+     */
+    public double averageBranching() {
+        return decisions == 0 ? 0 : (double) branching / decisions;
+    }
+
+    /**
+     * Returns a readable summary of the report.
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        double rate = games == 0 ? 0 : 100.0 / games;
+        return String.format("%d games in %.2f s (%.0f games/s, %.0f games/h)%n"
+                        + "pink wins %.2f%%, black wins %.2f%%, draws %.2f%%%n"
+                        + "average length %.2f turns, average branching factor %.2f",
+                games, nanos / 1e9, gamesPerSecond(), gamesPerSecond() * 3600,
+                pinkWins * rate, blackWins * rate, draws * rate,
+                averageLength(), averageBranching());
+    }
+}
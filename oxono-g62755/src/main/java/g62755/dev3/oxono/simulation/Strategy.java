@@ -0,0 +1,39 @@
+package g62755.dev3.oxono.simulation;
+
+import g62755.dev3.oxono.model.Difficulty;
+
+/**
+ * The ways a self-play player chooses its turns: the levels of the AI, or a Monte Carlo tree search running
+ * a fixed number of playouts per turn on a single worker.
+ */
+public enum Strategy {
+
+    EASY(Difficulty.EASY, 0),
+    MEDIUM(Difficulty.MEDIUM, 0),
+    HARD(Difficulty.HARD, 0),
+    MCTS(null, 2_000);
+
+    private final Difficulty difficulty;
+    private final int playouts;
+
+    Strategy(Difficulty difficulty, int playouts) {
+        this.difficulty = difficulty;
+        this.playouts = playouts;
+    }
+
+    /**
+     * Returns the level of the alpha-beta AI playing this strategy.
+     * @return the level, or null for the Monte Carlo tree search
+     */
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns the number of playouts the Monte Carlo tree search runs for each turn.
+     * @return the playouts per turn, 0 for the levels of the AI
+     */
+    public int getPlayouts() {
+        return playouts;
+    }
+}
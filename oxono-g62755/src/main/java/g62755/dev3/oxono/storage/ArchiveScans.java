@@ -0,0 +1,97 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.Moves;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Statistics computed by parallel scans of a {@link GameArchive}.
+ */
+public class ArchiveScans {
+
+    private ArchiveScans() {
+    }
+
+    /**
+     * The entry point of the archive statistics tool. Prints the average length of the games of each board size
+     * and the pink win rate of each opening move.
+     * @param args Command-line arguments: the data file of the archive, then optionally the board size of the openings
+     *             (default 6) and the number of threads (default: all cores).
+     * @throws IOException if the archive cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Path.of(args[0]);
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (GameArchive archive = new GameArchive(file)) {
+            long start = System.nanoTime();
+            Map<Integer, Double> lengths = averageLengthBySize(archive, pool);
+            Map<Integer, Double> openings = winRateByOpening(archive, pool, size);
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("%d games scanned twice in %.3f s.%n", archive.size(), nanos / 1e9);
+            lengths.forEach((boardSize, length) ->
+                    System.out.printf("%dx%d: %.2f turns on average%n", boardSize, boardSize, length));
+            openings.forEach((move, rate) ->
+                    System.out.printf("%s: pink wins %.1f%%%n", Moves.toString(move, size), 100 * rate));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Computes the share of games won by pink for each first totem move, on the games of a board size.
+     * @param archive the archive to scan
+     * @param pool the pool whose workers read the games
+     * @param size the size of the board of the games to count
+     * @return the win rate of pink for each opening move packed by {@link Moves}, sorted by move
+     */
+    public static Map<Integer, Double> winRateByOpening(GameArchive archive, ForkJoinPool pool, int size) {
+        Map<Integer, long[]> counts = archive.scan(pool, HashMap::new, (tally, game) -> {
+            if (game.getSize() == size && game.nextTurn()) {
+                long[] count = tally.computeIfAbsent(game.getMove(), move -> new long[2]);
+                count[0]++;
+                if (game.getOutcome() == Outcome.PINK_WIN) {
+                    count[1]++;
+                }
+            }
+        }, ArchiveScans::merge);
+        Map<Integer, Double> rates = new TreeMap<>();
+        counts.forEach((move, count) -> rates.put(move, (double) count[1] / count[0]));
+        return rates;
+    }
+
+    /**
+     * Computes the average number of turns of the games of each board size.
+     * @param archive the archive to scan
+     * @param pool the pool whose workers read the games
+     * @return the average number of turns for each board size, sorted by size
+     */
+    public static Map<Integer, Double> averageLengthBySize(GameArchive archive, ForkJoinPool pool) {
+        Map<Integer, long[]> counts = archive.scan(pool, HashMap::new, (tally, game) -> {
+            long[] count = tally.computeIfAbsent(game.getSize(), size -> new long[2]);
+            count[0]++;
+            count[1] += game.getTurnCount();
+        }, ArchiveScans::merge);
+        Map<Integer, Double> averages = new TreeMap<>();
+        counts.forEach((size, count) -> averages.put(size, (double) count[1] / count[0]));
+        return averages;
+    }
+
+    private static Map<Integer, long[]> merge(Map<Integer, long[]> left, Map<Integer, long[]> right) {
+        right.forEach((key, count) -> left.merge(key, count, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        }));
+        return left;
+    }
+}
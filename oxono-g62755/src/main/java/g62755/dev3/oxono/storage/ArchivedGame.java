@@ -0,0 +1,173 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.Moves;
+import g62755.dev3.oxono.model.Symbol;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+import static g62755.dev3.oxono.storage.GameRecordWriter.*;
+
+/**
+ * A reusable cursor reading one game of a {@link GameArchive} in place, straight from the mapped file.
+ * A scan moves the same cursor from game to game, so reading a game allocates nothing.
+ */
+public final class ArchivedGame {
+
+    private MemorySegment data;
+    private long id;
+    private long turnsStart;
+    private long position;
+    private int size;
+    private long seed;
+    private int move;
+    private int insert;
+    private int turnCount = -1;
+    private Outcome outcome;
+
+    void moveTo(MemorySegment data, long id, long offset) {
+        this.data = data;
+        this.id = id;
+        if (readByte(offset) != MAGIC || readByte(offset + 1) != VERSION) {
+            throw new IllegalStateException("No game record at offset " + offset + ".");
+        }
+        position = offset + 2;
+        size = (int) readVarint();
+        seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | readByte(position++);
+        }
+        turnsStart = position;
+        turnCount = -1;
+        outcome = null;
+        move = -1;
+        insert = -1;
+    }
+
+    /**
+     * Returns the id of the game in the archive.
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the size of the board of the game.
+     * @return the size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the seed of the game.
+     * @return the seed, or 0 if none
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Reads the next turn of the game, then available from {@link #getMove()} and {@link #getInsert()}.
+     * @return true if a turn was read, false at the end of the game
+     */
+    public boolean nextTurn() {
+        long value = readVarint();
+        int code = (int) (value & 7);
+        if (code == END) {
+            position--; // stay on the end code
+            return false;
+        }
+        int cell = (int) (value >>> 4);
+        Symbol symbol = (value & 8) != 0 ? Symbol.O : Symbol.X;
+        move = Moves.move(symbol, cell);
+        int insertCell = switch (code) {
+            case UP -> cell - size;
+            case DOWN -> cell + size;
+            case LEFT -> cell - 1;
+            case RIGHT -> cell + 1;
+            case FAR -> (int) readVarint();
+            default -> -1;
+        };
+        insert = insertCell == -1 ? -1 : Moves.insert(symbol, insertCell);
+        return true;
+    }
+
+    /**
+     * Goes back to the first turn of the game.
+     */
+    public void rewind() {
+        position = turnsStart;
+    }
+
+    /**
+     * Returns the totem move of the turn last read.
+     * @return the move packed by {@link Moves}
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * Returns the insert of the turn last read.
+     * @return the insert packed by {@link Moves}, or -1 if it was not played
+     */
+    public int getInsert() {
+        return insert;
+    }
+
+    /**
+     * Returns the number of turns of the game.
+     * @return the number of turns
+     */
+    public int getTurnCount() {
+        if (turnCount == -1) {
+            summarize();
+        }
+        return turnCount;
+    }
+
+    /**
+     * Returns how the game ended.
+     * @return the outcome
+     */
+    public Outcome getOutcome() {
+        if (outcome == null) {
+            summarize();
+        }
+        return outcome;
+    }
+
+    // Walks the turns to the end code without moving the cursor
+    private void summarize() {
+        long saved = position;
+        int savedMove = move;
+        int savedInsert = insert;
+        position = turnsStart;
+        int count = 0;
+        while (nextTurn()) {
+            count++;
+        }
+        outcome = Outcome.values()[(int) (readVarint() >>> 4)];
+        turnCount = count;
+        position = saved;
+        move = savedMove;
+        insert = savedInsert;
+    }
+
+    private int readByte(long offset) {
+        return data.get(ValueLayout.JAVA_BYTE, offset) & 0xFF;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte(position++);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
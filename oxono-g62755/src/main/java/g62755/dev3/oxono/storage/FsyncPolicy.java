@@ -0,0 +1,27 @@
+package g62755.dev3.oxono.storage;
+
+/**
+ * How far a {@link JournalStore} goes to make the actions it journals durable.
+ * Whatever the policy, actions are written by batches, one write per game for all the actions gathered since the
+ * previous batch.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Batches are written to the operating system but never forced to disk: games survive a crash of the process,
+     * not of the machine. Actions never wait.
+     */
+    NEVER,
+
+    /**
+     * Each batch is forced to disk: games survive a crash of the machine, losing at most the last commit interval.
+     * Actions never wait.
+     */
+    GROUP,
+
+    /**
+     * Each batch is forced to disk and every action waits until its batch is, so no acknowledged action is ever lost.
+     * Actions made at the same time on several games share the same batch.
+     */
+    ALWAYS
+}
@@ -0,0 +1,200 @@
+package g62755.dev3.oxono.storage;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Reads an archive written by {@link GameArchiveWriter}. Both files are mapped in memory, so games are read in place
+ * from the page cache: a game is found by id through the index in constant time, and scans read the games through
+ * an {@link ArchivedGame} cursor without decoding them into objects, whatever the size of the archive.
+ * Scans split the ids into ranges over the workers of a {@link ForkJoinPool}, each range being summed up in its own
+ * accumulator, and the accumulators are then combined.
+ * The archive holds the games present when it was opened; it is thread-safe until it is closed.
+ */
+public class GameArchive implements AutoCloseable {
+
+    private static final ValueLayout.OfLong OFFSET = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final int MIN_SCAN_RANGE = 1024;
+
+    private Arena arena;
+    private MemorySegment data;
+    private MemorySegment index;
+    private long count;
+
+    /**
+     * Opens an archive and maps its files.
+     * @param file the data file of the archive
+     * @throws IOException if the files cannot be opened or mapped
+     */
+    public GameArchive(Path file) throws IOException {
+        arena = Arena.ofShared();
+        try {
+            data = map(file);
+            index = map(indexFile(file));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        // offsets past the end of the data, as left by a data file cut after its index was written, index nothing
+        count = index.byteSize() / Long.BYTES;
+        while (count > 0 && index.getAtIndex(OFFSET, count - 1) >= data.byteSize()) {
+            count--;
+        }
+    }
+
+    static Path indexFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".idx");
+    }
+
+    /**
+     * Counts the whole offsets of an index that point into a data file. Offsets grow with the ids, so the ones past
+     * the data can only be at the end.
+     * @param index the index file, open for reading
+     * @param dataSize the size of the data file
+     * @return the number of games the index can give
+     * @throws IOException if the index cannot be read
+     */
+    static long countIndexed(FileChannel index, long dataSize) throws IOException {
+        long count = index.size() / Long.BYTES;
+        ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (count > 0) {
+            offset.clear();
+            while (offset.hasRemaining()) {
+                if (index.read(offset, (count - 1) * Long.BYTES + offset.position()) < 0) {
+                    throw new IOException("The index shrank while being read.");
+                }
+            }
+            if (offset.getLong(0) < dataSize) {
+                break;
+            }
+            count--;
+        }
+        return count;
+    }
+
+    private MemorySegment map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+        }
+    }
+
+    /**
+     * Returns the number of games in the archive.
+     * @return the number of games
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Decodes a game.
+     * @param id the id of the game
+     * @return the game
+     * @throws IndexOutOfBoundsException if no game has this id
+     */
+    public GameRecord get(long id) {
+        long start = offset(id);
+        long end = id + 1 < count ? offset(id + 1) : data.byteSize();
+        return GameRecord.decode(data.asSlice(start, end - start).toArray(ValueLayout.JAVA_BYTE));
+    }
+
+    /**
+     * Moves a cursor to a game, to read it in place.
+     * @param id the id of the game
+     * @param game the cursor to move, which can be reused from game to game
+     * @return the cursor
+     * @throws IndexOutOfBoundsException if no game has this id
+     */
+    public ArchivedGame read(long id, ArchivedGame game) {
+        game.moveTo(data, id, offset(id));
+        return game;
+    }
+
+    private long offset(long id) {
+        if (id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException("No game " + id + " in an archive of " + count + ".");
+        }
+        return index.getAtIndex(OFFSET, id);
+    }
+
+    /**
+     * Goes through every game of the archive in parallel.
+     * @param pool the pool whose workers read the games
+     * @param supplier creates an empty accumulator for each range of games
+     * @param accumulator adds a game to an accumulator; the game is a cursor only valid during the call
+     * @param combiner merges two accumulators, returning the result
+     * @param <A> the type of the accumulators
+     * @return the accumulator of all the games
+     */
+    public <A> A scan(ForkJoinPool pool, Supplier<A> supplier, BiConsumer<A, ArchivedGame> accumulator,
+                      BinaryOperator<A> combiner) {
+        long range = Math.max(MIN_SCAN_RANGE, count / (4L * pool.getParallelism()) + 1);
+        return pool.invoke(new ScanTask<>(0, count, range, supplier, accumulator, combiner));
+    }
+
+    /**
+     * Unmaps the files. The cursors moved by this archive must not be read any more.
+     */
+    @Override
+    public void close() {
+        arena.close();
+    }
+
+    // Tasks are serializable through ForkJoinTask but never serialized, so the functions are transient
+    private final class ScanTask<A> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final long range;
+        private final transient Supplier<A> supplier;
+        private final transient BiConsumer<A, ArchivedGame> accumulator;
+        private final transient BinaryOperator<A> combiner;
+
+        private ScanTask(long from, long to, long range, Supplier<A> supplier, BiConsumer<A, ArchivedGame> accumulator,
+                         BinaryOperator<A> combiner) {
+            this.from = from;
+            this.to = to;
+            this.range = range;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= range) {
+                A result = supplier.get();
+                ArchivedGame game = new ArchivedGame();
+                for (long id = from; id < to; id++) {
+                    accumulator.accept(result, read(id, game));
+                }
+                return result;
+            }
+            List<ScanTask<A>> tasks = new ArrayList<>();
+            for (long start = from; start < to; start += range) {
+                tasks.add(new ScanTask<>(start, Math.min(to, start + range), range, supplier, accumulator, combiner));
+            }
+            A result = null;
+            for (ScanTask<A> task : invokeAll(tasks)) {
+                result = result == null ? task.join() : combiner.apply(result, task.join());
+            }
+            return result;
+        }
+    }
+}
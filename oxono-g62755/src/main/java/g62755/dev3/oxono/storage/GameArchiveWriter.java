@@ -0,0 +1,109 @@
+package g62755.dev3.oxono.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends finished games to an archive read by {@link GameArchive}. The archive is two files: the data file holds
+ * the games one after the other in the form of {@link GameRecordWriter}, and the index file, named after the data
+ * file with {@code .idx} appended, holds the offset of each game in the data file as an 8-byte little-endian number.
+ * The id of a game is its rank in the archive. The offsets of the games appended are kept in memory and only written
+ * to the index by {@link #flush()}, once the data file is flushed, so a crash never indexes a game that was not
+ * fully written. When the archive is reopened, a partly written offset and any offset past the end of the data file
+ * are cut off; games written without their offset are left unreachable.
+ * Appending is thread-safe, so the workers of a self-play batch can share one writer.
+ */
+public class GameArchiveWriter implements Closeable {
+
+    private static final int INDEX_BATCH = 512;
+
+    private OutputStream data;
+    private OutputStream index;
+    private final long[] pending = new long[INDEX_BATCH];
+    private int pendingCount;
+    private long offset;
+    private long count;
+
+    /**
+     * Opens an archive for appending, creating its files if needed.
+     * @param file the data file of the archive
+     * @throws IOException if the files cannot be opened
+     */
+    public GameArchiveWriter(Path file) throws IOException {
+        Path indexFile = GameArchive.indexFile(file);
+        data = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+        offset = Files.size(file);
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            count = GameArchive.countIndexed(channel, offset);
+            channel.truncate(count * Long.BYTES);
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+        index = Files.newOutputStream(indexFile, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends a game.
+     * @param record the game to append
+     * @return the id of the game in the archive
+     * @throws IOException if the files cannot be written
+     */
+    public synchronized long append(GameRecord record) throws IOException {
+        byte[] bytes = record.encode();
+        data.write(bytes);
+        pending[pendingCount++] = offset;
+        offset += bytes.length;
+        if (pendingCount == INDEX_BATCH) {
+            flush();
+        }
+        return count++;
+    }
+
+    /**
+     * Returns the number of games in the archive, the ones appended by this writer included.
+     * @return the number of games
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * Writes the buffered games to the files, the data before the index.
+     * @throws IOException if the files cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        data.flush();
+        if (pendingCount > 0) {
+            ByteBuffer offsets = ByteBuffer.allocate(pendingCount * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < pendingCount; i++) {
+                offsets.putLong(pending[i]);
+            }
+            index.write(offsets.array());
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * Flushes the buffered games and closes the files.
+     * @throws IOException if the files cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * The journal of one game, kept by a {@link JournalStore}. Listening to the game, it appends each action to a buffer
+ * in memory, which the store writes to the journal file by batches.
+ * <p>
+ * The file starts with a header: the byte 'J', the format version, the board size and the level of the AI as varints.
+ * Batches follow, each one framed by its length as a varint and the CRC-32 of its bytes, so that a batch torn by
+ * a crash is recognized and dropped. A batch is a list of entries, each one a varint: an action packed by
+ * {@link Moves} shifted left by 3, the code of an undo, a redo or the end of the game, or a ply sought shifted left
+ * by 3.
+ * <p>
+ * Every few hundred entries, the journal is replaced by a snapshot: the shortest list of entries giving the same
+ * game, undo history included, that is every action still on the board or ready to be redone, then the end of the
+ * game, then the ply sought if the game is not at its last ply. Replaying a game thus never takes more than about
+ * two entries per cell of the board.
+ * <p>
+ * A batch that cannot be written is cut off the file and the next commit writes a snapshot instead, so no entry is
+ * lost behind a torn batch. The failure is reported to the next action journaled, whatever the {@link FsyncPolicy}.
+ */
+public class GameJournal implements GameListener {
+
+    static final int MAGIC = 'J';
+    static final int VERSION = 2;
+    static final int PLAYED = 0;
+    static final int UNDONE = 1;
+    static final int REDONE = 2;
+    static final int ENDED = 3;
+    static final int SOUGHT = 4;
+    private static final int CODE_BITS = 3;
+    private static final int CODE_MASK = (1 << CODE_BITS) - 1;
+
+    private final long id;
+    private final Path file;
+    private final Game game;
+    private final Difficulty difficulty;
+    private final JournalStore store;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition committed = lock.newCondition();
+    private FileChannel channel;
+    private byte[] pending = new byte[64];
+    private int pendingLength;
+    private long appended;
+    private long durable;
+    private int entriesSinceSnapshot;
+    private boolean queued;
+    private boolean snapshotNeeded;
+    private boolean replaying;
+    private boolean closed;
+    private IOException failure;
+
+    // The game as the shortest list of entries: the actions, the ply the game ended at and the current ply
+    private int[] actions = new int[16];
+    private int[] totems = new int[16];
+    private int actionCount;
+    private int cursor;
+    private int endedAt = -1;
+
+    private GameJournal(long id, Path file, Game game, Difficulty difficulty, JournalStore store) {
+        this.id = id;
+        this.file = file;
+        this.game = game;
+        this.difficulty = difficulty;
+        this.store = store;
+    }
+
+    /**
+     * Starts the journal of a new game, writing its header, and starts listening to the game.
+     */
+    static GameJournal create(long id, Path file, Game game, Difficulty difficulty, JournalStore store) throws IOException {
+        GameJournal journal = new GameJournal(id, file, game, difficulty, store);
+        Files.write(file, journal.header());
+        journal.channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journal.forceIfDurable();
+        game.setListener(journal);
+        return journal;
+    }
+
+    /**
+     * Rebuilds a game from its journal, dropping a torn last batch, and goes on journaling it.
+     */
+    static GameJournal recover(long id, Path file, JournalStore store) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (bytes.remaining() < 2 || bytes.get() != MAGIC || bytes.get() != VERSION) {
+            throw new IOException("Not a game journal: " + file + ".");
+        }
+        int size = (int) readVarint(bytes);
+        Difficulty difficulty = Difficulty.values()[(int) readVarint(bytes)];
+        Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+        game.setLogging(false);
+
+        GameJournal journal = new GameJournal(id, file, game, difficulty, store);
+        journal.replaying = true;
+        game.setListener(journal);
+        CRC32 crc = new CRC32();
+        int end = bytes.position();
+        while (bytes.hasRemaining()) {
+            long length;
+            try {
+                length = readVarint(bytes);
+            } catch (BufferUnderflowException e) {
+                break; // the last batch was torn
+            }
+            if (bytes.remaining() < 4 || length > bytes.remaining() - 4) {
+                break;
+            }
+            int checksum = bytes.getInt();
+            ByteBuffer batch = bytes.slice(bytes.position(), (int) length);
+            crc.reset();
+            crc.update(batch.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                while (batch.hasRemaining()) {
+                    long entry = readVarint(batch);
+                    boolean insert = (entry & CODE_MASK) == PLAYED && Moves.isInsert((int) (entry >>> CODE_BITS));
+                    journal.replay(entry, insert ? (int) readVarint(batch) : -1);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Game journal " + file + " cannot be replayed.", e);
+            }
+            bytes.position(bytes.position() + (int) length);
+            end = bytes.position();
+        }
+        journal.replaying = false;
+
+        journal.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        journal.channel.truncate(end);
+        journal.channel.position(end);
+        return journal;
+    }
+
+    private void replay(long entry, int totem) {
+        switch ((int) (entry & CODE_MASK)) {
+            case PLAYED -> {
+                int action = (int) (entry >>> CODE_BITS);
+                if (Moves.isInsert(action)) {
+                    game.insert(new Token(game.getToPlay().getC(), Moves.symbol(action)), position(totem), position(Moves.cell(action)));
+                } else {
+                    game.move(game.getTotem(Moves.symbol(action)), position(Moves.cell(action)));
+                }
+            }
+            case UNDONE -> game.undo();
+            case REDONE -> game.redo();
+            case SOUGHT -> game.seek((int) (entry >>> CODE_BITS));
+            default -> game.surrender();
+        }
+        entriesSinceSnapshot++;
+    }
+
+    private Position position(int cell) {
+        return new Position(cell / game.getBoardSize(), cell % game.getBoardSize());
+    }
+
+    /**
+     * Returns the id of the game.
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the game journaled.
+     * @return the game
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Returns the level of the AI the game is played against.
+     * @return the level
+     */
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    @Override
+    public void moved(int move) {
+        journal(((long) move << CODE_BITS) | PLAYED, -1);
+    }
+
+    @Override
+    public void inserted(int insert, Position totem) {
+        journal(((long) insert << CODE_BITS) | PLAYED, totem.x() * game.getBoardSize() + totem.y());
+    }
+
+    @Override
+    public void undone() {
+        journal(UNDONE, -1);
+    }
+
+    @Override
+    public void redone() {
+        journal(REDONE, -1);
+    }
+
+    @Override
+    public void sought(int ply) {
+        journal(((long) ply << CODE_BITS) | SOUGHT, -1);
+    }
+
+    @Override
+    public void ended() {
+        journal(ENDED, -1);
+    }
+
+    private void journal(long entry, int totem) {
+        long sequence;
+        IOException unreported;
+        lock.lock();
+        try {
+            track(entry, totem);
+            if (replaying || closed) {
+                return;
+            }
+            if (pendingLength + 15 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            pendingLength = writeVarint(pending, pendingLength, entry);
+            if (totem != -1) {
+                pendingLength = writeVarint(pending, pendingLength, totem);
+            }
+            sequence = ++appended;
+            entriesSinceSnapshot++;
+            if (!queued) {
+                queued = true;
+                store.enqueue(this);
+            }
+            unreported = failure;
+            failure = null;
+        } finally {
+            lock.unlock();
+        }
+        if (unreported != null) {
+            throw new UncheckedIOException("Game " + id + " could not be journaled.", unreported);
+        }
+        if (store.getPolicy() == FsyncPolicy.ALWAYS) {
+            awaitCommit(sequence);
+        }
+    }
+
+    // Keeps the shortest list of entries giving the game up to date
+    private void track(long entry, int totem) {
+        switch ((int) (entry & CODE_MASK)) {
+            case PLAYED -> {
+                // a new action drops the actions that could have been redone
+                actionCount = cursor;
+                if (endedAt > cursor) {
+                    endedAt = -1;
+                }
+                if (actionCount == actions.length) {
+                    actions = Arrays.copyOf(actions, actionCount * 2);
+                    totems = Arrays.copyOf(totems, actionCount * 2);
+                }
+                actions[actionCount] = (int) (entry >>> CODE_BITS);
+                totems[actionCount++] = totem;
+                cursor = actionCount;
+            }
+            case ENDED -> endedAt = game.getPly();
+            default -> cursor = game.getPly();
+        }
+    }
+
+    private void awaitCommit(long sequence) {
+        store.wakeUp();
+        lock.lock();
+        try {
+            while (durable < sequence && failure == null && !closed) {
+                committed.awaitUninterruptibly();
+            }
+            if (durable < sequence && failure != null) {
+                IOException e = failure;
+                failure = null;
+                throw new UncheckedIOException("Game " + id + " could not be journaled.", e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the entries appended since the last batch, or a snapshot when enough entries were appended or the last
+     * batch could not be written.
+     */
+    void commit() {
+        commitLock.lock();
+        long end = -1;
+        try {
+            byte[] batch;
+            long sequence;
+            boolean snapshot;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                queued = false;
+                // after a failed batch, only a snapshot still holds every entry
+                snapshot = snapshotNeeded || entriesSinceSnapshot >= store.getSnapshotEvery();
+                batch = snapshot ? snapshotEntries() : Arrays.copyOf(pending, pendingLength);
+                sequence = appended;
+                pendingLength = 0;
+                if (snapshot) {
+                    entriesSinceSnapshot = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (snapshot) {
+                writeSnapshot(batch);
+            } else if (batch.length > 0) {
+                end = channel.size();
+                writeBatch(channel, batch);
+                forceIfDurable();
+            }
+            lock.lock();
+            try {
+                durable = sequence;
+                if (snapshot) {
+                    snapshotNeeded = false;
+                }
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            if (end != -1) {
+                try {
+                    channel.truncate(end); // a torn batch would hide the batches written after it
+                } catch (IOException truncation) {
+                    e.addSuppressed(truncation);
+                }
+            }
+            lock.lock();
+            try {
+                snapshotNeeded = true;
+                if (!closed) {
+                    failure = e;
+                    committed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private byte[] snapshotEntries() {
+        ByteBuffer entries = ByteBuffer.allocate(10 * actionCount + 16);
+        for (int i = 0; i < actionCount; i++) {
+            writeVarint(entries, ((long) actions[i] << CODE_BITS) | PLAYED);
+            if (totems[i] != -1) {
+                writeVarint(entries, totems[i]);
+            }
+        }
+        int ply = actionCount;
+        if (endedAt != -1) {
+            if (endedAt != ply) {
+                writeVarint(entries, ((long) endedAt << CODE_BITS) | SOUGHT);
+                ply = endedAt;
+            }
+            writeVarint(entries, ENDED);
+        }
+        if (cursor != ply) {
+            writeVarint(entries, ((long) cursor << CODE_BITS) | SOUGHT);
+        }
+        return Arrays.copyOf(entries.array(), entries.position());
+    }
+
+    // The snapshot is written beside the journal then moved over it, so that a crash leaves one or the other whole
+    private void writeSnapshot(byte[] entries) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel snapshot = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            snapshot.write(ByteBuffer.wrap(header()));
+            writeBatch(snapshot, entries);
+            if (store.getPolicy() != FsyncPolicy.NEVER) {
+                snapshot.force(false);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static void writeBatch(FileChannel channel, byte[] batch) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(batch);
+        ByteBuffer frame = ByteBuffer.allocate(batch.length + 9);
+        writeVarint(frame, batch.length);
+        frame.putInt((int) crc.getValue()).put(batch).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private void forceIfDurable() throws IOException {
+        if (store.getPolicy() != FsyncPolicy.NEVER) {
+            channel.force(false);
+        }
+    }
+
+    private byte[] header() {
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.put((byte) MAGIC).put((byte) VERSION);
+        writeVarint(header, game.getBoardSize());
+        writeVarint(header, difficulty.ordinal());
+        return Arrays.copyOf(header.array(), header.position());
+    }
+
+    /**
+     * Stops journaling the game, dropping the entries not written yet.
+     */
+    void close() throws IOException {
+        commitLock.lock();
+        try {
+            lock.lock();
+            try {
+                closed = true;
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            channel.close();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private static void writeVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int writeVarint(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A whole game in a form that can be stored: the board size, the seed it was played with, its turns and its outcome.
+ * @param size the size of the board
+ * @param seed the seed of the random generator the game was played with, or 0 if none
+ * @param turns the turns played, in order, with actions packed by {@link Moves}
+ * @param outcome how the game ended
+ */
+public record GameRecord(int size, long seed, List<Turn> turns, Outcome outcome) {
+
+    /**
+     * Creates a record, keeping an unmodifiable copy of the turns.
+     * @param size the size of the board
+     * @param seed the seed of the random generator the game was played with, or 0 if none
+     * @param turns the turns played, in order, with actions packed by {@link Moves}
+     * @param outcome how the game ended
+     */
+    public GameRecord {
+        turns = List.copyOf(turns);
+    }
+
+    /**
+     * Plays the recorded turns on a new game.
+     * @return the game after the last recorded turn
+     */
+    public Game replay() {
+        Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+        for (Turn turn : turns) {
+            if (turn.move() != -1) {
+                game.makeMove(turn.move());
+            }
+            if (turn.insert() != -1) {
+                game.makeMove(turn.insert());
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Encodes the game in the binary form of {@link GameRecordWriter}.
+     * @return the encoded game
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + 2 * turns.size());
+        try {
+            new GameRecordWriter(out).write(this);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a game encoded by {@link #encode()}.
+     * @param bytes the encoded game
+     * @return the game
+     * @throws IllegalArgumentException if the bytes do not hold a valid game
+     */
+    public static GameRecord decode(byte[] bytes) {
+        try {
+            GameRecord record = new GameRecordReader(new ByteArrayInputStream(bytes)).read();
+            if (record == null) {
+                throw new IllegalArgumentException("No game record.");
+            }
+            return record;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid game record.", e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.Moves;
+import g62755.dev3.oxono.model.Symbol;
+import g62755.dev3.oxono.model.Turn;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static g62755.dev3.oxono.storage.GameRecordWriter.*;
+
+/**
+ * Reads games written by {@link GameRecordWriter}, one turn at a time, so that long streams of games can be
+ * replayed without holding them in memory.
+ */
+public class GameRecordReader {
+
+    private InputStream in;
+    private int size;
+    private boolean reading;
+    private long seed;
+    private Outcome outcome;
+
+    /**
+     * Creates a reader on a stream. The stream should be buffered, since the reader reads byte by byte.
+     * @param in the stream to read from
+     */
+    public GameRecordReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next whole game.
+     * @return the game, or null at the end of the stream
+     * @throws IOException if the stream fails or does not hold a valid game
+     */
+    public GameRecord read() throws IOException {
+        if (!begin()) {
+            return null;
+        }
+        List<Turn> turns = new ArrayList<>();
+        for (Turn turn = nextTurn(); turn != null; turn = nextTurn()) {
+            turns.add(turn);
+        }
+        return new GameRecord(size, seed, turns, outcome);
+    }
+
+    /**
+     * Reads the header of the next game.
+     * @return true if a game follows, false at the end of the stream
+     * @throws IOException if the stream fails or does not hold a valid header
+     * @throws IllegalStateException if the turns of the previous game were not all read
+     */
+    public boolean begin() throws IOException {
+        if (reading) {
+            throw new IllegalStateException("The previous game was not read to its end.");
+        }
+        int magic = in.read();
+        if (magic == -1) {
+            return false;
+        }
+        if (magic != MAGIC || readByte() != VERSION) {
+            throw new IOException("Not a game record.");
+        }
+        size = (int) readVarint();
+        seed = 0;
+        for (int i = 0; i < 8; i++) {
+            seed = (seed << 8) | readByte();
+        }
+        outcome = null;
+        reading = true;
+        return true;
+    }
+
+    /**
+     * Returns the board size of the game being read or last read.
+     * @return the size of the board
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the seed of the game being read or last read.
+     * @return the seed, or 0 if none
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the outcome of the last game read, known once {@link #nextTurn()} has returned null.
+     * @return the outcome, or null before the end of the game
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Reads the next turn of the game.
+     * @return the turn, with actions packed by {@link Moves} and an insert of -1 if it was not played,
+     *         or null at the end of the game
+     * @throws IOException if the stream fails or does not hold a valid turn
+     * @throws IllegalStateException if no game is being read
+     */
+    public Turn nextTurn() throws IOException {
+        if (!reading) {
+            throw new IllegalStateException("No game is being read.");
+        }
+        long value = readVarint();
+        int code = (int) (value & 7);
+        if (code == END) {
+            int ordinal = (int) (value >>> 4);
+            if (ordinal >= Outcome.values().length) {
+                throw new IOException("Unknown outcome " + ordinal + ".");
+            }
+            outcome = Outcome.values()[ordinal];
+            reading = false;
+            return null;
+        }
+        int cell = (int) (value >>> 4);
+        Symbol symbol = (value & 8) != 0 ? Symbol.O : Symbol.X;
+        int insert = switch (code) {
+            case UP -> cell - size;
+            case DOWN -> cell + size;
+            case LEFT -> cell - 1;
+            case RIGHT -> cell + 1;
+            case FAR -> (int) readVarint();
+            case NONE -> -1;
+            default -> throw new IOException("Unknown turn code " + code + ".");
+        };
+        return new Turn(Moves.move(symbol, cell), insert == -1 ? -1 : Moves.insert(symbol, insert));
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("Truncated game record.");
+        }
+        return b;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint.");
+    }
+}
@@ -0,0 +1,140 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.Moves;
+import g62755.dev3.oxono.model.Symbol;
+import g62755.dev3.oxono.model.Turn;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes games to a stream in the compact binary form read by {@link GameRecordReader}, one turn at a time,
+ * so that a game can be written while it is played. Several games can follow each other in the same stream.
+ * <p>
+ * A game starts with a header: the byte 'O', the format version, the board size as a varint and the seed as 8 bytes.
+ * Each turn is then one varint holding the destination cell of the totem, its symbol and a 3-bit code telling where
+ * the token went: next to the totem above, below, left or right, elsewhere (then followed by a varint of the cell,
+ * for a totem that was enclaved) or nowhere (a move whose insert was never played). An end code carrying
+ * the {@link Outcome} closes the game. Turns take 2 bytes on boards up to 32x32.
+ */
+public class GameRecordWriter {
+
+    static final int MAGIC = 'O';
+    static final int VERSION = 1;
+    static final int UP = 0;
+    static final int DOWN = 1;
+    static final int LEFT = 2;
+    static final int RIGHT = 3;
+    static final int FAR = 4;
+    static final int NONE = 5;
+    static final int END = 6;
+
+    private OutputStream out;
+    private int size = -1;
+
+    /**
+     * Creates a writer on a stream. The stream should be buffered, since the writer writes byte by byte.
+     * @param out the stream to write to
+     */
+    public GameRecordWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a whole game.
+     * @param record the game to write
+     * @throws IOException if the stream fails
+     */
+    public void write(GameRecord record) throws IOException {
+        begin(record.size(), record.seed());
+        for (Turn turn : record.turns()) {
+            turn(turn);
+        }
+        end(record.outcome());
+    }
+
+    /**
+     * Starts a game.
+     * @param size the size of the board
+     * @param seed the seed of the random generator the game is played with, or 0 if none
+     * @throws IOException if the stream fails
+     * @throws IllegalStateException if the previous game was not ended
+     */
+    public void begin(int size, long seed) throws IOException {
+        if (this.size != -1) {
+            throw new IllegalStateException("The previous game was not ended.");
+        }
+        this.size = size;
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, size);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (seed >>> shift));
+        }
+    }
+
+    /**
+     * Writes the next turn of the game.
+     * @param turn the turn, with a totem move and an insert packed by {@link Moves}, the insert being -1 if not played
+     * @throws IOException if the stream fails
+     * @throws IllegalStateException if no game was started
+     * @throws IllegalArgumentException if the turn has no totem move
+     */
+    public void turn(Turn turn) throws IOException {
+        checkStarted();
+        if (turn.move() == -1) {
+            throw new IllegalArgumentException("A recorded turn starts with a totem move.");
+        }
+        int cell = Moves.cell(turn.move());
+        int code = turn.insert() == -1 ? NONE : direction(cell, Moves.cell(turn.insert()));
+        writeVarint(out, ((long) cell << 4) | (Moves.symbol(turn.move()) == Symbol.O ? 8 : 0) | code);
+        if (code == FAR) {
+            writeVarint(out, Moves.cell(turn.insert()));
+        }
+    }
+
+    /**
+     * Ends the game.
+     * @param outcome how the game ended
+     * @throws IOException if the stream fails
+     * @throws IllegalStateException if no game was started
+     */
+    public void end(Outcome outcome) throws IOException {
+        checkStarted();
+        writeVarint(out, ((long) outcome.ordinal() << 4) | END);
+        size = -1;
+    }
+
+    private void checkStarted() {
+        if (size == -1) {
+            throw new IllegalStateException("No game was started.");
+        }
+    }
+
+    private int direction(int cell, int insert) {
+        if (insert == cell - size) {
+            return UP;
+        } else if (insert == cell + size) {
+            return DOWN;
+        } else if (insert == cell - 1 && insert / size == cell / size) {
+            return LEFT;
+        } else if (insert == cell + 1 && insert / size == cell / size) {
+            return RIGHT;
+        }
+        return FAR;
+    }
+
+    /**
+     * Writes an unsigned varint: 7 bits per byte, low bits first, the high bit set on every byte but the last.
+     * @param out the stream to write to
+     * @param value the value to write, read as unsigned
+     * @throws IOException if the stream fails
+     */
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
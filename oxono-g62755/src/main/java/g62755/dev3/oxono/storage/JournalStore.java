@@ -0,0 +1,182 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.Difficulty;
+import g62755.dev3.oxono.model.Game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps a journal for each game in progress, in one directory, so that every game can be rebuilt after a crash.
+ * Actions are only buffered when they are played, which costs well under a microsecond. A single committer thread
+ * wakes up at each commit interval, or at once for an action waiting on {@link FsyncPolicy#ALWAYS}, and writes all
+ * the buffered actions of each game in one batch, forced to disk as the {@link FsyncPolicy} says.
+ */
+public class JournalStore implements Closeable {
+
+    private static final String SUFFIX = ".journal";
+    private static final String BAD_SUFFIX = ".bad";
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long commitNanos;
+    private final int snapshotEvery;
+    private final Map<Long, GameJournal> journals = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<GameJournal> dirty = new ConcurrentLinkedQueue<>();
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    /**
+     * Opens a store, creating its directory if needed, and starts its committer thread.
+     * @param directory the directory of the journals
+     * @param policy how far batches are made durable
+     * @param commitIntervalMillis the time between two batches
+     * @param snapshotEvery the number of entries after which a journal is replaced by a snapshot
+     * @throws IOException if the directory cannot be created
+     */
+    public JournalStore(Path directory, FsyncPolicy policy, long commitIntervalMillis, int snapshotEvery) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.policy = policy;
+        this.commitNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.snapshotEvery = snapshotEvery;
+        this.committer = Thread.ofPlatform().name("oxono-journal").daemon().start(this::commitLoop);
+    }
+
+    /**
+     * Returns how far batches are made durable.
+     * @return the fsync policy
+     */
+    public FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of entries after which a journal is replaced by a snapshot.
+     * @return the number of entries
+     */
+    public int getSnapshotEvery() {
+        return snapshotEvery;
+    }
+
+    /**
+     * Starts journaling a new game. The game must not have been played yet.
+     * @param id the id of the game, unique in the store
+     * @param game the game, whose listener becomes the journal
+     * @param difficulty the level of the AI the game is played against
+     * @return the journal of the game
+     * @throws IOException if the journal cannot be created
+     */
+    public GameJournal create(long id, Game game, Difficulty difficulty) throws IOException {
+        GameJournal journal = GameJournal.create(id, file(id), game, difficulty, this);
+        journals.put(id, journal);
+        return journal;
+    }
+
+    /**
+     * Rebuilds every game of the store, the journals being replayed in parallel, and goes on journaling them.
+     * A journal that cannot be read or replayed is renamed with {@code .bad} appended and left out, so that one
+     * broken game does not keep the others from being recovered.
+     * @return the journals of the games, each one holding its rebuilt game
+     * @throws IOException if the directory cannot be read
+     */
+    public List<GameJournal> recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> directoryFiles = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            directoryFiles.forEach(files::add);
+        }
+        List<GameJournal> recovered = files.parallelStream().map(this::recover).filter(Objects::nonNull).toList();
+        for (GameJournal journal : recovered) {
+            journals.put(journal.getId(), journal);
+        }
+        return recovered;
+    }
+
+    private GameJournal recover(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return GameJournal.recover(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file, this);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Game journal " + file + " skipped: " + e.getMessage());
+            try {
+                Files.move(file, file.resolveSibling(name + BAD_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveFailure) {
+                System.err.println("Game journal " + file + " could not be moved aside: " + moveFailure.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stops journaling a game and deletes its journal.
+     * @param id the id of the game
+     * @throws IOException if the journal cannot be deleted
+     */
+    public void delete(long id) throws IOException {
+        GameJournal journal = journals.remove(id);
+        if (journal != null) {
+            journal.close();
+        }
+        Files.deleteIfExists(file(id));
+    }
+
+    /**
+     * Writes every buffered action now, on the calling thread.
+     */
+    public void commit() {
+        GameJournal journal;
+        while ((journal = dirty.poll()) != null) {
+            journal.commit();
+        }
+    }
+
+    /**
+     * Writes every buffered action, stops the committer thread and closes the journals.
+     * @throws IOException if a journal cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(committer);
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        for (GameJournal journal : journals.values()) {
+            journal.close();
+        }
+        journals.clear();
+    }
+
+    void enqueue(GameJournal journal) {
+        dirty.add(journal);
+    }
+
+    void wakeUp() {
+        LockSupport.unpark(committer);
+    }
+
+    private Path file(long id) {
+        return directory.resolve(id + SUFFIX);
+    }
+
+    private void commitLoop() {
+        while (running) {
+            LockSupport.parkNanos(commitNanos);
+            commit();
+        }
+    }
+}
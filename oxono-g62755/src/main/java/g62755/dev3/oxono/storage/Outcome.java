@@ -0,0 +1,15 @@
+package g62755.dev3.oxono.storage;
+
+/**
+ * How a recorded game ended.
+ */
+public enum Outcome {
+    /** The game was stopped before its end. */
+    UNFINISHED,
+    /** Pink completed a line. */
+    PINK_WIN,
+    /** Black completed a line. */
+    BLACK_WIN,
+    /** No line was completed and no action was left. */
+    DRAW
+}
@@ -0,0 +1,246 @@
+package g62755.dev3.oxono.view;
+
+import g62755.dev3.oxono.controller.JavaFXController;
+import g62755.dev3.oxono.model.Pawn;
+import g62755.dev3.oxono.model.Totem;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.util.BitSet;
+
+/**
+ * Draws a board of any size on a single canvas, for boards too large for a node per cell.
+ * <p>
+ * The colors of the cells live in an image holding one pixel per cell, which is drawn scaled to the viewport, so
+ * a frame costs the same on a 512x512 board as on a small one. Grid lines and symbols are drawn on top for the
+ * visible cells only, once they are large enough to be read. Cells changed since the last frame are repainted
+ * alone; the whole viewport is drawn again only after a pan, a zoom or a resize.
+ * <p>
+ * Dragging pans the board, scrolling zooms around the pointer and a click without a drag plays the cell.
+ */
+public class BoardCanvas extends Pane {
+
+    private static final double MIN_CELL = 1;
+    private static final double MAX_CELL = 64;
+    private static final double GRID_CELL = 8;
+    private static final double SYMBOL_CELL = 14;
+    private static final int EMPTY = 0xFFFFFFFF;
+    private static final int TOTEM = 0xFF0000FF;
+    private static final int PINK = 0xFFFFC0CB;
+    private static final int BLACK = 0xFF000000;
+    private static final int HIGHLIGHT = 0xFF008000;
+
+    private final int size;
+    private final JavaFXController javaFXController;
+    private final Canvas canvas = new Canvas();
+    private final WritableImage image;
+    private final PixelWriter pixels;
+    private final int[] colors;
+    private final BitSet highlighted;
+    private final BitSet dirty;
+    private boolean viewChanged = true;
+    private double cellSize;
+    private double offsetX;
+    private double offsetY;
+    private double pressX;
+    private double pressY;
+    private boolean dragged;
+    private Font symbolFont;
+
+    /**
+     * Constructs a canvas showing the whole board at first.
+     * @param size The size of the game board.
+     * @param javaFXController The controller giving the pawns and playing the clicked cells.
+     * @param width The preferred width of the canvas.
+     * @param height The preferred height of the canvas.
+     */
+    public BoardCanvas(int size, JavaFXController javaFXController, double width, double height) {
+        this.size = size;
+        this.javaFXController = javaFXController;
+        this.image = new WritableImage(size, size);
+        this.pixels = image.getPixelWriter();
+        this.colors = new int[size * size];
+        this.highlighted = new BitSet(size * size);
+        this.dirty = new BitSet(size * size);
+        this.cellSize = Math.clamp(Math.min(width, height) / size, MIN_CELL, MAX_CELL);
+        setPrefSize(width, height);
+        getChildren().add(canvas);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener((observable, before, after) -> viewChanged = true);
+        canvas.heightProperty().addListener((observable, before, after) -> viewChanged = true);
+        canvas.setFocusTraversable(false);
+        setMinSize(0, 0);
+        setStyle("-fx-background-color: white;");
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = color(i);
+            pixels.setArgb(i % size, i / size, colors[i]);
+        }
+        listenToMouse();
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drawFrame();
+            }
+        }.start();
+    }
+
+    /**
+     * Repaints a cell from its pawn, dropping its highlight, on the next frame.
+     * @param index The index of the cell, row * size + column.
+     */
+    public void paint(int index) {
+        highlighted.clear(index);
+        colors[index] = color(index);
+        pixels.setArgb(index % size, index / size, colors[index]);
+        dirty.set(index);
+    }
+
+    /**
+     * Highlights a cell on the next frame.
+     * @param index The index of the cell, row * size + column.
+     */
+    public void highlight(int index) {
+        highlighted.set(index);
+        pixels.setArgb(index % size, index / size, HIGHLIGHT);
+        dirty.set(index);
+    }
+
+    private int color(int index) {
+        Pawn pawn = javaFXController.getPawnAt(index / size, index % size);
+        if (pawn == null) {
+            return EMPTY;
+        } else if (pawn instanceof Totem) {
+            return TOTEM;
+        }
+        return pawn.getColor() == g62755.dev3.oxono.model.Color.PINK ? PINK : BLACK;
+    }
+
+    private void listenToMouse() {
+        setOnMousePressed(event -> {
+            pressX = event.getX();
+            pressY = event.getY();
+            dragged = false;
+        });
+        setOnMouseDragged(event -> {
+            double dx = event.getX() - pressX;
+            double dy = event.getY() - pressY;
+            if (dragged || Math.abs(dx) + Math.abs(dy) > 3) {
+                dragged = true;
+                panTo(offsetX - dx, offsetY - dy);
+                pressX = event.getX();
+                pressY = event.getY();
+            }
+        });
+        setOnMouseClicked(event -> {
+            if (!dragged) {
+                int row = (int) Math.floor((event.getY() + offsetY) / cellSize);
+                int col = (int) Math.floor((event.getX() + offsetX) / cellSize);
+                if (row >= 0 && row < size && col >= 0 && col < size) {
+                    javaFXController.handleClickOnCell(row, col);
+                }
+            }
+        });
+        setOnScroll(event -> {
+            double zoomed = Math.clamp(cellSize * Math.pow(1.1, event.getDeltaY() / 40), MIN_CELL, MAX_CELL);
+            // the board point under the pointer stays under it
+            double scale = zoomed / cellSize;
+            cellSize = zoomed;
+            panTo((offsetX + event.getX()) * scale - event.getX(), (offsetY + event.getY()) * scale - event.getY());
+        });
+    }
+
+    private void panTo(double x, double y) {
+        double board = size * cellSize;
+        offsetX = board <= getWidth() ? (board - getWidth()) / 2 : Math.clamp(x, 0, board - getWidth());
+        offsetY = board <= getHeight() ? (board - getHeight()) / 2 : Math.clamp(y, 0, board - getHeight());
+        viewChanged = true;
+    }
+
+    private void drawFrame() {
+        if (!viewChanged && dirty.isEmpty()) {
+            return;
+        }
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        if (viewChanged) {
+            panTo(offsetX, offsetY); // keeps the board in view after a resize
+            viewChanged = false;
+            dirty.clear();
+            drawViewport(graphics);
+            return;
+        }
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            drawCell(graphics, i / size, i % size);
+        }
+        dirty.clear();
+    }
+
+    // The image is drawn scaled without smoothing, each of its pixels becoming a cell
+    private void drawViewport(GraphicsContext graphics) {
+        graphics.setFill(Color.WHITE);
+        graphics.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        int firstRow = Math.max(0, (int) Math.floor(offsetY / cellSize));
+        int firstCol = Math.max(0, (int) Math.floor(offsetX / cellSize));
+        int lastRow = Math.min(size - 1, (int) Math.floor((offsetY + canvas.getHeight()) / cellSize));
+        int lastCol = Math.min(size - 1, (int) Math.floor((offsetX + canvas.getWidth()) / cellSize));
+        if (firstRow > lastRow || firstCol > lastCol) {
+            return;
+        }
+        graphics.setImageSmoothing(false);
+        graphics.drawImage(image, firstCol, firstRow, lastCol - firstCol + 1, lastRow - firstRow + 1,
+                firstCol * cellSize - offsetX, firstRow * cellSize - offsetY,
+                (lastCol - firstCol + 1) * cellSize, (lastRow - firstRow + 1) * cellSize);
+        if (cellSize < GRID_CELL) {
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                decorateCell(graphics, row, col);
+            }
+        }
+    }
+
+    private void drawCell(GraphicsContext graphics, int row, int col) {
+        double x = col * cellSize - offsetX;
+        double y = row * cellSize - offsetY;
+        if (x + cellSize < 0 || y + cellSize < 0 || x > canvas.getWidth() || y > canvas.getHeight()) {
+            return;
+        }
+        int index = row * size + col;
+        int argb = highlighted.get(index) ? HIGHLIGHT : colors[index];
+        graphics.setFill(Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF));
+        graphics.fillRect(x, y, cellSize, cellSize);
+        if (cellSize >= GRID_CELL) {
+            decorateCell(graphics, row, col);
+        }
+    }
+
+    private void decorateCell(GraphicsContext graphics, int row, int col) {
+        double x = col * cellSize - offsetX;
+        double y = row * cellSize - offsetY;
+        graphics.setStroke(Color.BLACK);
+        graphics.setLineWidth(1);
+        graphics.strokeRect(x + 0.5, y + 0.5, cellSize - 1, cellSize - 1);
+        if (cellSize < SYMBOL_CELL || colors[row * size + col] == EMPTY) {
+            return;
+        }
+        Pawn pawn = javaFXController.getPawnAt(row, col);
+        if (symbolFont == null || symbolFont.getSize() != Math.round(cellSize * 0.4)) {
+            symbolFont = Font.font("Arial", FontWeight.BOLD, Math.round(cellSize * 0.4));
+        }
+        graphics.setFill(Color.WHITE);
+        graphics.setFont(symbolFont);
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        graphics.fillText(pawn.getSymbol().toString(), x + cellSize / 2, y + cellSize / 2);
+    }
+}
@@ -3,7 +3,6 @@ package g62755.dev3.oxono.view;
 import g62755.dev3.oxono.controller.JavaFXController;
 import g62755.dev3.oxono.model.*;
 import javafx.geometry.Pos;
-import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
@@ -19,20 +18,35 @@ import javafx.scene.text.Text;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
+import java.util.BitSet;
+
 public class GameBoardView extends GridPane {
 
+    private static final Font SYMBOL_FONT = Font.font("Arial", FontWeight.BOLD, 20);
+    // Above this many cells, the board is drawn on a canvas instead of a node per cell
+    private static final int MAX_NODE_CELLS = 1024;
+
     private JavaFXController javaFXController;
-    private MenuView menuView;
     private Label emptyTilesLabel;
     private Label currentPlayerLabel;
     private Label currentGameStateLabel;
+    private final int size;
+    // The nodes of each cell, indexed by row * size + column, built once and repainted in place; null on a canvas
+    private final Rectangle[] rectangles;
+    private final Text[] symbols;
+    private final BitSet highlighted;
+    private BoardCanvas canvas;
+    private boolean built;
 
     /**
      * Constructs a new GameBoardView.
-     * @param menuView The menu view associated with the game board.
+     * @param size The size of the game board.
      */
-    public GameBoardView(MenuView menuView) {
-        this.menuView = menuView;
+    public GameBoardView(int size) {
+        this.size = size;
+        this.rectangles = size * size > MAX_NODE_CELLS ? null : new Rectangle[size * size];
+        this.symbols = size * size > MAX_NODE_CELLS ? null : new Text[size * size];
+        this.highlighted = new BitSet(size * size);
         this.emptyTilesLabel = new Label();
         this.currentPlayerLabel = new Label("Current Player : ");
         this.currentGameStateLabel = new Label("Current Game State : ");
@@ -47,13 +61,16 @@ public class GameBoardView extends GridPane {
     }
 
     /**
-     * Displays the game board.
+     * Displays the game board. The nodes are built on the first call; later calls only repaint the cells.
      */
     public void displayBoard() {
-        this.getChildren().clear();// Clears last game board
+        if (built) {
+            repaintCells();
+            return;
+        }
+        built = true;
         this.setStyle("-fx-background-color: white;");
         this.setAlignment(Pos.CENTER);
-        int size = Integer.parseInt(menuView.getBoardSizeInput().getText());
 
         Button undoButton = new Button("Undo");
         Button redoButton = new Button("Redo");
@@ -80,49 +97,94 @@ public class GameBoardView extends GridPane {
         buttonBox.setAlignment(Pos.CENTER);
         buttonBox.setStyle("-fx-padding: 20 0 20 0;");
 
-        this.add(buttonBox, 0, 0, size, 1);
+        int rows = rectangles == null ? 1 : size;
+        int columns = rectangles == null ? 1 : size;
+        this.add(buttonBox, 0, 0, columns, 1);
 
-        for (int i = 0; i < size; i++) {
+        if (rectangles == null) {
+            canvas = new BoardCanvas(size, javaFXController, 450, 400);
+            this.add(canvas, 0, 1);
+        }
+        for (int i = 0; i < size && rectangles != null; i++) {
             for (int j = 0; j < size; j++) {
-                StackPane stackPane = new StackPane();
                 Rectangle rectangle = new Rectangle(50, 50);
                 rectangle.setStroke(Color.BLACK);
-                rectangle.setFill(Color.WHITE);
-
-                Pawn pawn = javaFXController.getPawnAt(i, j);
-                if (pawn != null) {
-                    if (pawn instanceof Totem) {
-                        rectangle.setFill(Color.BLUE);
-                    } else if (pawn.getColor() == g62755.dev3.oxono.model.Color.PINK){
-                        rectangle.setFill(Color.PINK);
-                    } else {
-                        rectangle.setFill(Color.BLACK);
-                    }
-                    Text text = new Text(pawn.getSymbol().toString());
-                    text.setFill(Color.WHITE);
-                    text.setFont(Font.font("Arial", FontWeight.BOLD, 20));
-                    stackPane.getChildren().addAll(rectangle, text); // Add rectangle and text to StackPane
-                } else {
-                    stackPane.getChildren().add(rectangle); // Add only rectangle if no pawn
-                }
+                Text text = new Text();
+                text.setFill(Color.WHITE);
+                text.setFont(SYMBOL_FONT);
+                text.setMouseTransparent(true);
+                StackPane stackPane = new StackPane(rectangle, text);
                 int finalI = i;
                 int finalJ = j;
                 stackPane.setOnMouseClicked(event -> javaFXController.handleClickOnCell(finalI, finalJ));
+                rectangles[i * size + j] = rectangle;
+                symbols[i * size + j] = text;
+                paintCell(i * size + j);
                 this.add(stackPane, j, i + 1); // Add StackPane to GridPane
             }
         }
 
         emptyTilesLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
         emptyTilesLabel.setStyle("-fx-padding: 20 0 0 0;");
-        this.add(emptyTilesLabel, 0, size + 1, size, 1);
+        this.add(emptyTilesLabel, 0, rows + 1, columns, 1);
 
         currentGameStateLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
         currentGameStateLabel.setStyle("-fx-padding: 10 0 10 0;");
-        this.add(currentGameStateLabel, 0, size + 2, size, 1);
+        this.add(currentGameStateLabel, 0, rows + 2, columns, 1);
 
         currentPlayerLabel.setFont(Font.font("Arial", FontWeight.BOLD, 14));
         currentPlayerLabel.setStyle("-fx-padding: 10 0 10 0;");
-        this.add(currentPlayerLabel, 0, size + 3, size, 1);;
+        this.add(currentPlayerLabel, 0, rows + 3, columns, 1);
+    }
+
+    /**
+     * Repaints one cell of the board after its pawn changed, leaving the other cells as they are.
+     * @param pos The position of the cell.
+     */
+    public void repaintCell(Position pos) {
+        if (built && pos.x() < size && pos.y() < size) {
+            int index = pos.x() * size + pos.y();
+            highlighted.clear(index);
+            paintCell(index);
+        }
+    }
+
+    /**
+     * Repaints every cell of the board, keeping its nodes.
+     */
+    public void repaintCells() {
+        if (built) {
+            highlighted.clear();
+            for (int i = 0; i < size * size; i++) {
+                paintCell(i);
+            }
+        }
+    }
+
+    // Only the fill of the rectangle and the symbol change; nodes whose value is unchanged are not touched
+    private void paintCell(int index) {
+        if (canvas != null) {
+            canvas.paint(index);
+            return;
+        }
+        Pawn pawn = javaFXController.getPawnAt(index / size, index % size);
+        Color fill;
+        if (pawn == null) {
+            fill = Color.WHITE;
+        } else if (pawn instanceof Totem) {
+            fill = Color.BLUE;
+        } else if (pawn.getColor() == g62755.dev3.oxono.model.Color.PINK) {
+            fill = Color.PINK;
+        } else {
+            fill = Color.BLACK;
+        }
+        if (!fill.equals(rectangles[index].getFill())) {
+            rectangles[index].setFill(fill);
+        }
+        String symbol = pawn == null ? "" : pawn.getSymbol().toString();
+        if (!symbol.equals(symbols[index].getText())) {
+            symbols[index].setText(symbol);
+        }
     }
 
     /**
@@ -130,18 +192,9 @@ public class GameBoardView extends GridPane {
      * @param pos The position of the selected pawn.
      */
     public void highlightMoveOptions(Position pos) {
-        for (Node node : this.getChildren()) {
-            if (node instanceof StackPane) {
-                StackPane stackPane = (StackPane) node;
-                int colIndex = GridPane.getColumnIndex(stackPane) != null ? GridPane.getColumnIndex(stackPane) : 0;
-                int rowIndex = GridPane.getRowIndex(stackPane) != null ? GridPane.getRowIndex(stackPane) : 0;
-                Position newPos = new Position(rowIndex - 1, colIndex);
-
-                if (javaFXController.isWithinBounds(newPos) && javaFXController.isValidMove(pos, newPos)) {
-                    Rectangle rectangle = (Rectangle) stackPane.getChildren().get(0);
-                    rectangle.setFill(Color.GREEN);
-                }
-            }
+        BitSet targets = javaFXController.getMoveTargets(pos);
+        for (int i = targets.nextSetBit(0); i >= 0; i = targets.nextSetBit(i + 1)) {
+            highlight(i);
         }
     }
 
@@ -150,48 +203,29 @@ public class GameBoardView extends GridPane {
      * @param posTotem The position of the Totem to be inserted.
      */
     public void highlightInsertOptions(Position posTotem) {
-        for (Node node : this.getChildren()) {
-            if (node instanceof StackPane) {
-                StackPane stackPane = (StackPane) node;
-                int colIndex = GridPane.getColumnIndex(stackPane) != null ? GridPane.getColumnIndex(stackPane) : 0;
-                int rowIndex = GridPane.getRowIndex(stackPane) != null ? GridPane.getRowIndex(stackPane) : 0;
-                Position newPos = new Position(rowIndex - 1, colIndex);
-
-                if (javaFXController.isWithinBounds(newPos) && javaFXController.isValidInsert(posTotem, newPos)) {
-                    Rectangle rectangle = (Rectangle) stackPane.getChildren().get(0);
-                    rectangle.setFill(Color.GREEN);
-                }
-            }
+        BitSet targets = javaFXController.getInsertTargets(posTotem);
+        for (int i = targets.nextSetBit(0); i >= 0; i = targets.nextSetBit(i + 1)) {
+            highlight(i);
         }
     }
 
+    private void highlight(int index) {
+        if (canvas != null) {
+            canvas.highlight(index);
+        } else {
+            rectangles[index].setFill(Color.GREEN);
+        }
+        highlighted.set(index);
+    }
+
     /**
-     * Resets the highlights on the game board.
+     * Resets the highlights on the game board, repainting only the cells highlighted.
      */
     public void resetHighlights() {
-        for (Node node : this.getChildren()) {
-            if (node instanceof StackPane) {
-                StackPane stackPane = (StackPane) node;
-                Rectangle rectangle = (Rectangle) stackPane.getChildren().get(0);
-                int rowIndex = (GridPane.getRowIndex(stackPane) != null) ? GridPane.getRowIndex(stackPane) - 1 : -1;
-                int colIndex = (GridPane.getColumnIndex(stackPane) != null) ? GridPane.getColumnIndex(stackPane) : -1;
-
-                if (stackPane.getChildren().size() == 1) {
-                    rectangle.setFill(Color.WHITE);
-                } else {
-                    Pawn pawn = javaFXController.getPawnAt(rowIndex, colIndex);
-                    if (pawn == null) {
-                        rectangle.setFill(Color.WHITE);
-                    } else if (pawn instanceof Totem) {
-                        rectangle.setFill(Color.BLUE);
-                    } else if (pawn.getColor() == g62755.dev3.oxono.model.Color.PINK) {
-                        rectangle.setFill(Color.PINK);
-                    } else {
-                        rectangle.setFill(Color.BLACK);
-                    }
-                }
-            }
+        for (int i = highlighted.nextSetBit(0); i >= 0; i = highlighted.nextSetBit(i + 1)) {
+            paintCell(i);
         }
+        highlighted.clear();
     }
 
     /**
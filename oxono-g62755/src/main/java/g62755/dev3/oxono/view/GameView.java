@@ -3,9 +3,50 @@ package g62755.dev3.oxono.view;
 import g62755.dev3.oxono.controller.GameController;
 import g62755.dev3.oxono.model.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
 public class GameView {
 
+    private static final String RESET = "\u001B[0m";
+    private static final String[] COLORS = {"", "\u001B[35m", "\u001B[35m", "\u001B[30m", "\u001B[30m", "\u001B[34m", "\u001B[34m"};
+    private static final char[] SYMBOLS = {'_', 'X', 'O', 'X', 'O', 'X', 'O'};
+    // Boards taller than this are printed in full, since they may not fit above the scrolling lines
+    private static final int MAX_PINNED_ROWS = 40;
+
     private GameController controller;
+    private final OutputStream out;
+    private final boolean addressing;
+    // The frame is built in one buffer and written at once; the cells last written are kept to redraw only changes
+    private final StringBuilder frame = new StringBuilder();
+    private byte[] bytes = new byte[256];
+    private byte[] shown;
+    private int size;
+
+    /**
+     * Constructs a view printing to the standard output, redrawing only the changed cells when it is a terminal.
+     */
+    public GameView() {
+        this(System.out, isTerminal());
+    }
+
+    /**
+     * Constructs a view printing to a stream.
+     * @param out The stream to print the board to.
+     * @param addressing true to keep the board at the top of the terminal and redraw only the changed cells with
+     *                   cursor moves, false to print the whole board each time.
+     */
+    public GameView(OutputStream out, boolean addressing) {
+        this.out = out;
+        this.addressing = addressing;
+    }
+
+    private static boolean isTerminal() {
+        String term = System.getenv("TERM");
+        return System.console() != null && term != null && !term.equals("dumb");
+    }
 
     /**
      * Sets the game controller for this view.
@@ -16,27 +57,114 @@ public class GameView {
     }
 
     /**
-     * Displays the game board.
+     * Displays the game board. On a terminal, the board stays pinned at the top of the screen, the messages
+     * scrolling below it, and only the cells changed since the last call are redrawn.
      */
     public void displayBoard() {
-        for (int i = 0; i < 6; i++) {
-            for (int j = 0; j < 6; j++) {
-                Pawn pawn = controller.getPawnAt(i, j);
-                if (pawn == null) {
-                    System.out.print("_ ");
-                } else if (pawn instanceof Totem) {
-                    System.out.print("\u001B[34m" + pawn.getSymbol() + "\u001B[0m ");
-                } else {
-                    if (pawn.getColor() == Color.PINK) {
-                        System.out.print("\u001B[35m" + pawn.getSymbol() + "\u001B[0m ");
-                    } else if (pawn.getColor() == Color.BLACK) {
-                        System.out.print("\u001B[30m" + pawn.getSymbol() + "\u001B[0m ");
-                    } else {
-                        System.out.print(pawn.getSymbol() + " ");
-                    }
-                }
+        int boardSize = controller.getBoardSize();
+        if (shown == null || boardSize != size) {
+            size = boardSize;
+            shown = new byte[size * size];
+            Arrays.fill(shown, (byte) -1);
+        }
+        frame.setLength(0);
+        if (addressing && size <= MAX_PINNED_ROWS) {
+            appendChanges();
+        } else {
+            appendBoard();
+        }
+        write();
+    }
+
+    /**
+     * Gives the whole terminal back to scrolling, below the pinned board. To be called when the game ends.
+     */
+    public void releaseBoard() {
+        if (addressing && shown != null && size <= MAX_PINNED_ROWS) {
+            frame.setLength(0);
+            frame.append("\u001B[r\u001B[999;1H\n");
+            write();
+        }
+    }
+
+    private void appendBoard() {
+        for (int row = 0; row < size; row++) {
+            String color = "";
+            for (int col = 0; col < size; col++) {
+                int code = code(row, col);
+                shown[row * size + col] = (byte) code;
+                color = appendColor(color, COLORS[code]);
+                frame.append(SYMBOLS[code]).append(' ');
+            }
+            appendColor(color, "");
+            frame.append('\n');
+        }
+    }
+
+    // The first frame clears the screen and keeps the lines below the board for the messages
+    private void appendChanges() {
+        boolean first = shown[0] == -1;
+        if (first) {
+            frame.append("\u001B[2J\u001B[H");
+            appendBoard();
+            frame.append("\u001B[").append(size + 2).append(";r\u001B[").append(size + 2).append(";1H");
+            return;
+        }
+        int start = frame.length();
+        frame.append("\u001B7");
+        boolean changed = false;
+        for (int cell = 0; cell < shown.length; cell++) {
+            int code = code(cell / size, cell % size);
+            if (code != shown[cell]) {
+                shown[cell] = (byte) code;
+                changed = true;
+                frame.append("\u001B[").append(cell / size + 1).append(';').append(2 * (cell % size) + 1).append('H')
+                        .append(COLORS[code]).append(SYMBOLS[code]).append(RESET);
             }
-            System.out.println();
+        }
+        if (changed) {
+            frame.append("\u001B8");
+        } else {
+            frame.setLength(start);
+        }
+    }
+
+    private String appendColor(String current, String color) {
+        if (!color.equals(current)) {
+            frame.append(current.isEmpty() ? "" : RESET).append(color);
+        }
+        return color;
+    }
+
+    private int code(int row, int col) {
+        Pawn pawn = controller.getPawnAt(row, col);
+        if (pawn == null) {
+            return 0;
+        }
+        int symbol = pawn.getSymbol() == Symbol.X ? 1 : 2;
+        if (pawn instanceof Totem) {
+            return 4 + symbol;
+        }
+        return pawn.getColor() == Color.BLACK ? 2 + symbol : symbol;
+    }
+
+    // The frame only holds ASCII, so each char is one byte
+    private void write() {
+        int length = frame.length();
+        if (length == 0) {
+            return;
+        }
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) frame.charAt(i);
+        }
+        try {
+            out.write(bytes, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -88,6 +216,13 @@ public class GameView {
         System.out.println("End of the game.");
     }
 
+    /**
+     * Displays the prompt message for choosing the difficulty level of the AI.
+     */
+    public void displayDifficultyScannerMessage() {
+        System.out.println("Select the difficulty level (EASY, MEDIUM or HARD, EASY by default) : ");
+    }
+
     /**
      * Displays the prompt message for moving a totem.
      */
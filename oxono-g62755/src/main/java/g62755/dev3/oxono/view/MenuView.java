@@ -47,9 +47,8 @@ public class MenuView extends VBox {
             return false;
         }
 
-        String difficulty = difficultySelector.getValue();
-        if (!"Easy".equals(difficulty)) {
-            displayError("Only Easy difficulty level is available.");
+        if (difficultySelector.getValue() == null) {
+            displayError("Please select a difficulty level.");
             return false;
         }
 
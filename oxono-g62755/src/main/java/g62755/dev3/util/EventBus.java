@@ -0,0 +1,124 @@
+package g62755.dev3.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Delivers typed events to subscribers by batches. The publisher adds the events of one change with
+ * {@link #publish(Object)} and closes the batch with {@link #flush()}; each subscriber then receives the batch on
+ * its own executor, so that a slow subscriber never holds the publisher back. When a subscriber falls behind,
+ * the batches waiting for it are merged and delivered at once.
+ * <p>
+ * Events are published from one thread at a time, the one changing the observed object. Publishing without any
+ * subscriber costs a single check.
+ * @param <E> the type of the events
+ */
+public class EventBus<E> {
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private List<E> batch = new ArrayList<>();
+
+    /**
+     * Subscribes to the batches published from now on.
+     * @param subscriber the subscriber, given each batch in order
+     * @param executor the executor running the subscriber, such as {@code Runnable::run} to be called on the
+     *                 publisher's thread
+     * @return the subscription, to be closed to stop receiving events
+     */
+    public Subscription subscribe(Consumer<List<E>> subscriber, Executor executor) {
+        Subscription subscription = new Subscription(subscriber, executor);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Checks if anyone listens to the bus.
+     * @return true if there is at least one subscription
+     */
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    /**
+     * Adds an event to the current batch. The event is dropped if nobody listens.
+     * @param event the event
+     */
+    public void publish(E event) {
+        if (!subscriptions.isEmpty()) {
+            batch.add(event);
+        }
+    }
+
+    /**
+     * Closes the current batch and hands it to every subscriber. Does nothing if the batch is empty.
+     */
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<E> events = Collections.unmodifiableList(batch);
+        batch = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(events);
+        }
+    }
+
+    /**
+     * The link between the bus and one subscriber, with the batches not delivered yet.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final Consumer<List<E>> subscriber;
+        private final Executor executor;
+        private final Queue<List<E>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscription(Consumer<List<E>> subscriber, Executor executor) {
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        private void offer(List<E> events) {
+            pending.offer(events);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        // Runs on the executor of the subscriber; a batch offered meanwhile is either merged or picked up by the next pass
+        private void drain() {
+            do {
+                List<E> events = pending.poll();
+                if (events != null && pending.peek() != null) {
+                    List<E> merged = new ArrayList<>(events);
+                    for (List<E> next; (next = pending.poll()) != null; ) {
+                        merged.addAll(next);
+                    }
+                    events = Collections.unmodifiableList(merged);
+                }
+                if (events != null && !closed) {
+                    subscriber.accept(events);
+                }
+                scheduled.set(false);
+            } while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+        /**
+         * Stops the delivery of events, dropping the batches not delivered yet.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            pending.clear();
+        }
+    }
+}
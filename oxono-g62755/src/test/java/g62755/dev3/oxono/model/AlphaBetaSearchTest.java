@@ -0,0 +1,128 @@
+package g62755.dev3.oxono.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlphaBetaSearchTest {
+
+    private static Game game(Board board) {
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), board);
+        game.setLogging(false);
+        return game;
+    }
+
+    private static AlphaBetaSearch search(Game game, int maxDepth, long millis) {
+        return new AlphaBetaSearch(game, new Random(1), maxDepth, millis,
+                new TranspositionTable(1, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    // Pink to move with three X in row 1: moving the X totem from (2, 2) to (2, 3) lets it insert an X at (1, 3)
+    private static Game threeInARow() {
+        Board board = new Board(6);
+        board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(1, 0));
+        board.insertToken(new Token(Color.PINK, Symbol.X), new Position(1, 1));
+        board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(1, 2));
+        return game(board);
+    }
+
+    private static boolean canWinAtOnce(Game game) {
+        int[] moves = new int[game.getMaxMoves()];
+        int[] inserts = new int[game.getMaxMoves()];
+        int count = game.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            game.makeMove(moves[i]);
+            int insertCount = game.generateMoves(inserts);
+            for (int j = 0; j < insertCount; j++) {
+                game.makeMove(inserts[j]);
+                boolean won = game.isEnded();
+                game.unmakeMove();
+                if (won) {
+                    game.unmakeMove();
+                    return true;
+                }
+            }
+            game.unmakeMove();
+        }
+        return false;
+    }
+
+    @Test
+    void testPlaysAWinningTurn() {
+        Game game = threeInARow();
+        Turn turn = search(game, 4, 10_000).searchTurn();
+        game.makeMove(turn.move());
+        game.makeMove(turn.insert());
+        assertEquals(Color.PINK, game.getWinner());
+    }
+
+    @Test
+    void testPlaysAWinningInsert() {
+        Game game = threeInARow();
+        game.makeMove(Moves.move(Symbol.X, 2 * 6 + 3));
+        Turn turn = search(game, 3, 10_000).searchTurn();
+        assertEquals(-1, turn.move());
+        assertEquals(Moves.insert(Symbol.X, 6 + 3), turn.insert());
+    }
+
+    @Test
+    void testBlocksAThree() {
+        // three black tokens in row 0, which black completes by sliding the O totem up to (1, 3)
+        Board board = new Board(6);
+        board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(0, 0));
+        board.insertToken(new Token(Color.BLACK, Symbol.O), new Position(0, 1));
+        board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(0, 2));
+        Game game = game(board);
+        assertTrue(canWinAtOnce(toBlack(game)));
+
+        Turn turn = search(game, 4, 10_000).searchTurn();
+        game.makeMove(turn.move());
+        game.makeMove(turn.insert());
+        assertFalse(game.isEnded());
+        assertFalse(canWinAtOnce(game));
+    }
+
+    // The position of the game with black to move, pink passing its turn by inserting out of the way
+    private static Game toBlack(Game game) {
+        Game copy = new Game(game);
+        copy.makeMove(Moves.move(Symbol.X, 5 * 6 + 2));
+        copy.makeMove(Moves.insert(Symbol.X, 5 * 6 + 1));
+        return copy;
+    }
+
+    @Test
+    void testKeepsToTheTimeBudget() {
+        Game game = game(new Board(6));
+        AlphaBetaSearch search = search(game, 64, 100);
+        search.searchTurn(); // warms the search up
+        long start = System.nanoTime();
+        search.searchTurn();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < 100 + 250, millis + " ms");
+        assertTrue(search.getCompletedDepth() < 64);
+    }
+
+    @Test
+    void testLeavesTheGameAsItWas() {
+        Game game = game(new Board(6));
+        AI ai = new AI(game, new Random(5));
+        for (int i = 0; i < 9; i++) {
+            ai.play();
+        }
+        long hash = game.getHash();
+        GameState state = game.getGameState();
+        Color toPlay = game.getToPlay().getC();
+        int empty = game.countEmptyTiles();
+        int pinkX = game.getPlayerTokenCount(Color.PINK, Symbol.X);
+
+        search(game, 4, 10_000).searchTurn();
+
+        assertEquals(hash, game.getHash());
+        assertEquals(state, game.getGameState());
+        assertEquals(toPlay, game.getToPlay().getC());
+        assertEquals(empty, game.countEmptyTiles());
+        assertEquals(pinkX, game.getPlayerTokenCount(Color.PINK, Symbol.X));
+    }
+}
@@ -3,6 +3,9 @@ package g62755.dev3.oxono.model;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.BitSet;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class BoardTest {
@@ -206,4 +209,115 @@ class BoardTest {
         assertNull(board.getPawnAt(2, 3));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void linesWrappingAroundTheBoardAreNotWins() {
+        // consecutive bits of a row-major layer, split over rows 0 and 1
+        Position[] acrossRows = {new Position(0, 4), new Position(0, 5), new Position(1, 0), new Position(1, 1)};
+        for (Position position : acrossRows) {
+            board.insertToken(new Token(Color.PINK, Symbol.X), position);
+        }
+        for (Position position : acrossRows) {
+            assertFalse(board.completesLine(position));
+        }
+
+        // consecutive cells in column-major order, split over columns 4 and 5
+        Board columns = new Board(6);
+        Position[] acrossColumns = {new Position(4, 4), new Position(5, 4), new Position(0, 5), new Position(1, 5)};
+        for (Position position : acrossColumns) {
+            columns.insertToken(new Token(Color.BLACK, Symbol.O), position);
+        }
+        for (Position position : acrossColumns) {
+            assertFalse(columns.completesLine(position));
+        }
+
+        board.insertToken(new Token(Color.PINK, Symbol.O), new Position(0, 3));
+        board.insertToken(new Token(Color.PINK, Symbol.O), new Position(0, 2));
+        assertTrue(board.completesLine(new Position(0, 2))); // (0, 2) to (0, 5) are all on row 0
+    }
+
+    @Test
+    void enclavedTotemJumpsToTheFirstEmptyCells() {
+        Position totem = board.getTotem(Symbol.X).getPosition();
+        assertEquals(new Position(2, 2), totem);
+        for (Position position : new Position[] {new Position(1, 2), new Position(0, 2), new Position(3, 2),
+                new Position(2, 1), new Position(2, 3)}) {
+            board.insertToken(new Token(Color.PINK, Symbol.O), position);
+        }
+        assertTrue(board.isEnclaved(totem));
+
+        BitSet expected = new BitSet();
+        expected.set(4 * 6 + 2); // over (3, 2)
+        expected.set(2 * 6);     // over (2, 1)
+        expected.set(2 * 6 + 4); // over (2, 3), but not on to (2, 5)
+        assertEquals(expected, board.getMoveTargets(totem));
+
+        // with its row and column full, an enclaved totem goes to any empty cell
+        for (int i = 0; i < 6; i++) {
+            if (board.isEmpty(new Position(2, i))) {
+                board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(2, i));
+            }
+            if (board.isEmpty(new Position(i, 2))) {
+                board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(i, 2));
+            }
+        }
+        BitSet targets = board.getMoveTargets(totem);
+        assertEquals(board.countEmpty(), targets.cardinality());
+        for (int cell = targets.nextSetBit(0); cell >= 0; cell = targets.nextSetBit(cell + 1)) {
+            assertTrue(board.isEmpty(board.getPosition(cell)));
+        }
+    }
+
+    @Test
+    void targetsMatchCellByCellChecksOnRandomPositions() {
+        Random random = new Random(6);
+        for (int size = 4; size <= 8; size += 2) {
+            for (int round = 0; round < 200; round++) {
+                Board board = randomBoard(size, random);
+                int[] buffer = new int[size * size];
+                for (Symbol symbol : Symbol.values()) {
+                    Position totem = board.getTotem(symbol).getPosition();
+                    BitSet moves = targets(buffer, board.getMoveTargets(totem, buffer, 0, 0));
+                    BitSet inserts = targets(buffer, board.getInsertTargets(totem, buffer, 0, 0));
+                    for (int cell = 0; cell < size * size; cell++) {
+                        Position position = board.getPosition(cell);
+                        assertEquals(board.isValidMove(totem, position), moves.get(cell), size + "x" + size + " move to " + position);
+                        assertEquals(board.isValidInsert(totem, position), inserts.get(cell), size + "x" + size + " insert at " + position);
+                    }
+                    assertEquals(moves, board.getMoveTargets(totem));
+                    assertEquals(inserts, board.getInsertTargets(totem));
+                }
+            }
+        }
+    }
+
+    // A board with the totems anywhere and from none to almost every other cell taken, often enclaving a totem
+    private static Board randomBoard(int size, Random random) {
+        Board board = new Board(size);
+        for (Symbol symbol : Symbol.values()) {
+            Position position;
+            do {
+                position = new Position(random.nextInt(size), random.nextInt(size));
+            } while (!board.isEmpty(position));
+            board.moveTotem(board.getTotem(symbol), position);
+        }
+        double density = random.nextDouble();
+        for (int cell = 0; cell < size * size; cell++) {
+            Position position = board.getPosition(cell);
+            if (board.isEmpty(position) && random.nextDouble() < density) {
+                board.insertToken(new Token(random.nextBoolean() ? Color.PINK : Color.BLACK,
+                        random.nextBoolean() ? Symbol.X : Symbol.O), position);
+            }
+        }
+        return board;
+    }
+
+    private static BitSet targets(int[] buffer, int count) {
+        BitSet cells = new BitSet();
+        for (int i = 0; i < count; i++) {
+            assertFalse(cells.get(Moves.cell(buffer[i])), "generated twice");
+            cells.set(Moves.cell(buffer[i]));
+        }
+        return cells;
+    }
+}
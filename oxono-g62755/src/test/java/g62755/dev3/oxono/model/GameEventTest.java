@@ -0,0 +1,88 @@
+package g62755.dev3.oxono.model;
+
+import g62755.dev3.util.EventBus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventTest {
+
+    private static Game newGame() {
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), new Board(6));
+        game.setLogging(false);
+        return game;
+    }
+
+    @Test
+    void testOneBatchPerTurn() {
+        Game game = newGame();
+        List<List<GameEvent>> batches = new ArrayList<>();
+        game.getEvents().subscribe(batches::add, Runnable::run);
+        Position from = game.getTotem(Symbol.X).getPosition();
+        Position to = new Position(from.x(), from.y() - 1);
+        Position token = new Position(to.x(), to.y() - 1);
+
+        game.move(game.getTotem(Symbol.X), to);
+        assertEquals(0, batches.size()); // the turn is not over
+        game.undo();
+        assertEquals(List.of(
+                new GameEvent.TotemMoved(Symbol.X, from, to),
+                new GameEvent.PhaseChanged(GameState.INSERT, Color.PINK),
+                new GameEvent.TotemMoved(Symbol.X, to, from),
+                new GameEvent.PhaseChanged(GameState.MOVE, Color.PINK)), batches.get(0));
+
+        game.move(game.getTotem(Symbol.X), to);
+        game.insert(new Token(Color.PINK, Symbol.X), to, token);
+        assertEquals(List.of(
+                new GameEvent.TotemMoved(Symbol.X, from, to),
+                new GameEvent.PhaseChanged(GameState.INSERT, Color.PINK),
+                new GameEvent.TokenInserted(Color.PINK, Symbol.X, token),
+                new GameEvent.PhaseChanged(GameState.MOVE, Color.BLACK)), batches.get(1));
+
+        AI ai = new AI(game, new Random(2));
+        ai.play();
+        assertEquals(2, batches.size());
+        ai.play();
+        assertEquals(3, batches.size());
+        assertEquals(4, batches.get(2).size());
+
+        game.move(game.getTotem(Symbol.O), game.getTotem(Symbol.O).getPosition().equals(new Position(3, 4))
+                ? new Position(3, 5) : new Position(3, 4));
+        game.surrender();
+        assertEquals(4, batches.size()); // the end of the game closes the batch of the unfinished turn
+        assertEquals(new GameEvent.GameEnded(), batches.get(3).get(2));
+    }
+
+    @Test
+    void testSlowSubscriberGetsMergedBatches() {
+        Game game = newGame();
+        Queue<Runnable> slow = new ArrayDeque<>();
+        List<List<GameEvent>> slowBatches = new ArrayList<>();
+        List<List<GameEvent>> fastBatches = new ArrayList<>();
+        game.getEvents().subscribe(slowBatches::add, slow::add);
+        EventBus<GameEvent>.Subscription fast = game.getEvents().subscribe(fastBatches::add, Runnable::run);
+
+        AI ai = new AI(game, new Random(1));
+        for (int i = 0; i < 8; i++) {
+            ai.play();
+        }
+        assertEquals(4, fastBatches.size()); // one per turn
+        assertEquals(1, slow.size()); // one drain scheduled, however many batches wait
+
+        slow.poll().run();
+        assertEquals(1, slowBatches.size());
+        assertEquals(fastBatches.stream().flatMap(List::stream).toList(), slowBatches.get(0));
+
+        fast.close();
+        ai.play();
+        ai.play();
+        assertEquals(4, fastBatches.size());
+        assertEquals(1, slow.size());
+    }
+}
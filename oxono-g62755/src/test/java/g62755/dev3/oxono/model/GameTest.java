@@ -2,6 +2,12 @@ package g62755.dev3.oxono.model;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GameTest {
@@ -218,5 +224,180 @@ class GameTest {
         assertNull(game.getPawnAt(2, 2));
         assertEquals(totem, game.getPawnAt(2, 5));
     }
-}
 
+    @Test
+    void hashFollowsPosition() {
+        long start = game.getHash();
+        Totem totem = (Totem) game.getPawnAt(2, 2);
+
+        // Moving changes the key, undoing restores it
+        game.move(totem, new Position(2, 5));
+        assertNotEquals(start, game.getHash());
+        game.undo();
+        assertEquals(start, game.getHash());
+
+        // Same pawns but different phase
+        long beforeInsert = game.getHash();
+        game.move(totem, new Position(2, 5));
+        game.insert(new Token(Color.PINK, Symbol.X), totem.getPosition(), new Position(2, 4));
+        board.removeToken(new Position(2, 4));
+        game.move(totem, new Position(2, 2));
+        assertNotEquals(beforeInsert, game.getHash());
+    }
+
+    @Test
+    void makeAndUnmakeMove() {
+        long start = game.getHash();
+        int[] moves = new int[game.getMaxMoves()];
+
+        // Play the first legal action of a few turns
+        for (int ply = 0; ply < 6; ply++) {
+            assertTrue(game.generateMoves(moves) > 0);
+            game.makeMove(moves[0]);
+        }
+        assertEquals(GameState.MOVE, game.getGameState());
+        assertEquals(29, pinkPlayer.getX() + pinkPlayer.getO() + blackPlayer.getX() + blackPlayer.getO());
+        assertNotEquals(start, game.getHash());
+
+        // Take everything back
+        for (int ply = 0; ply < 6; ply++) {
+            game.unmakeMove();
+        }
+        assertEquals(start, game.getHash());
+        assertEquals(pinkPlayer, game.getToPlay());
+        assertEquals(GameState.MOVE, game.getGameState());
+        assertEquals(8, pinkPlayer.getX());
+        assertEquals(8, blackPlayer.getO());
+        assertThrows(IllegalStateException.class, () -> game.unmakeMove());
+    }
+
+    @Test
+    void targetsMatchCellByCellChecks() {
+        game.setLogging(false);
+        AI ai = new AI(game, new Random(4));
+        for (int ply = 0; ply < 24 && !game.isEnded(); ply++) {
+            for (Symbol symbol : Symbol.values()) {
+                Position totem = game.getTotem(symbol).getPosition();
+                BitSet moves = game.getMoveTargets(totem);
+                BitSet inserts = game.getInsertTargets(totem);
+                for (int cell = 0; cell < 36; cell++) {
+                    Position position = board.getPosition(cell);
+                    assertEquals(game.isValidMove(totem, position), moves.get(cell));
+                    assertEquals(game.isValidInsert(totem, position), inserts.get(cell));
+                }
+                assertSame(moves, game.getMoveTargets(totem)); // kept until the board changes
+            }
+            BitSet before = game.getMoveTargets(game.getTotem(Symbol.X).getPosition());
+            ai.play();
+            assertNotSame(before, game.getMoveTargets(game.getTotem(Symbol.X).getPosition()));
+        }
+    }
+
+    // The key of the position from its pawns, phase and token counts alone
+    private static long recomputeHash(Game game) {
+        int size = game.getBoardSize();
+        long hash = 0;
+        for (int cell = 0; cell < size * size; cell++) {
+            Pawn pawn = game.getPawnAt(cell / size, cell % size);
+            if (pawn != null) {
+                hash ^= Zobrist.piece(cell, pawn);
+            }
+        }
+        hash ^= Zobrist.toPlay(game.getToPlay().getC()) ^ Zobrist.phase(game.getGameState());
+        if (game.getGameState() == GameState.INSERT) {
+            hash ^= Zobrist.toInsert(game.getToInsert());
+        }
+        for (Color color : new Color[] {Color.PINK, Color.BLACK}) {
+            for (Symbol symbol : Symbol.values()) {
+                hash ^= Zobrist.tokens(color, symbol, game.getPlayerTokenCount(color, symbol));
+            }
+        }
+        return hash;
+    }
+
+    @Test
+    void incrementalHashMatchesRecomputation() {
+        game.setLogging(false);
+        Random random = new Random(8);
+        AI ai = new AI(game, random);
+        int[] moves = new int[game.getMaxMoves()];
+        for (int step = 0; step < 200; step++) {
+            if (game.isEnded() || game.countEmptyTiles() == 0) {
+                game.seek(random.nextInt(game.getPly() + 1));
+            } else if (step % 7 == 3 && game.getPly() >= 3) {
+                game.undo();
+            } else if (step % 11 == 5 && game.getLastPly() - game.getPly() >= 3 && game.getGameState() == GameState.INSERT) {
+                game.redo();
+            } else {
+                ai.play();
+            }
+            assertEquals(recomputeHash(game), game.getHash());
+
+            int made = 0;
+            while (made < 6 && !game.isEnded()) {
+                int count = game.generateMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                game.makeMove(moves[random.nextInt(count)]);
+                made++;
+                assertEquals(recomputeHash(game), game.getHash());
+            }
+            for (; made > 0; made--) {
+                game.unmakeMove();
+                assertEquals(recomputeHash(game), game.getHash());
+            }
+        }
+        game.surrender();
+        assertEquals(recomputeHash(game), game.getHash());
+    }
+
+    @Test
+    void generatedMovesMatchCellByCellChecks() {
+        Random random = new Random(12);
+        for (int size = 4; size <= 6; size += 2) {
+            Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+            int[] moves = new int[game.getMaxMoves()];
+            for (int round = 0; round < 100; round++) {
+                int made = 0;
+                while (!game.isEnded()) {
+                    int count = game.generateMoves(moves);
+                    Set<Integer> generated = new HashSet<>();
+                    for (int i = 0; i < count; i++) {
+                        assertTrue(generated.add(moves[i]), "generated twice");
+                    }
+                    assertEquals(expectedMoves(game), generated);
+                    if (count == 0) {
+                        break;
+                    }
+                    game.makeMove(moves[random.nextInt(count)]);
+                    made++;
+                }
+                for (; made > 0; made--) {
+                    game.unmakeMove();
+                }
+            }
+        }
+    }
+
+    // The actions of the player to move, from the cell-by-cell checks the views used to call
+    private static Set<Integer> expectedMoves(Game game) {
+        Set<Integer> expected = new HashSet<>();
+        int size = game.getBoardSize();
+        for (Symbol symbol : Symbol.values()) {
+            Position totem = game.getTotem(symbol).getPosition();
+            for (int cell = 0; cell < size * size; cell++) {
+                Position position = new Position(cell / size, cell % size);
+                if (game.getGameState() == GameState.MOVE
+                        && game.getPlayerTokenCount(game.getToPlay().getC(), symbol) > 0
+                        && game.isValidMove(totem, position)) {
+                    expected.add(Moves.move(symbol, cell));
+                } else if (game.getGameState() == GameState.INSERT && symbol == game.getToInsert()
+                        && game.isValidInsert(totem, position)) {
+                    expected.add(Moves.insert(symbol, cell));
+                }
+            }
+        }
+        return expected;
+    }
+}
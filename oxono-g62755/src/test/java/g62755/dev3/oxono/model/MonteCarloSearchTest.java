@@ -0,0 +1,52 @@
+package g62755.dev3.oxono.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloSearchTest {
+
+    // Pink to move with three X in row 1: moving the X totem from (2, 2) to (2, 3) lets it insert an X at (1, 3)
+    private static Game threeInARow() {
+        Board board = new Board(6);
+        board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(1, 0));
+        board.insertToken(new Token(Color.PINK, Symbol.X), new Position(1, 1));
+        board.insertToken(new Token(Color.BLACK, Symbol.X), new Position(1, 2));
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), board);
+        game.setLogging(false);
+        return game;
+    }
+
+    @Test
+    void testSameSeedSameSearch() {
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), new Board(6));
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            MonteCarloSearch first = new MonteCarloSearch(game, pool, 42);
+            Turn turn = first.searchTurn(2_000);
+            MonteCarloSearch second = new MonteCarloSearch(game, pool, 42);
+            assertEquals(turn, second.searchTurn(2_000));
+            assertArrayEquals(first.getRootVisits(), second.getRootVisits());
+            assertEquals(2_000, second.getPlayouts());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testPlaysAForcedWin() {
+        Game game = threeInARow();
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            Turn turn = new MonteCarloSearch(game, pool, 7).searchTurn(20_000);
+            game.makeMove(turn.move());
+            game.makeMove(turn.insert());
+            assertTrue(game.isEnded());
+            assertEquals(Color.PINK, game.getWinner());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package g62755.dev3.oxono.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.ValueLayout;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    private static final long KEY = 0x9E3779B97F4A7C15L;
+
+    @Test
+    void testPacking() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE);
+        int generation = table.newSearch();
+        int[] scores = {0, 1, -1, -37_500, 999_990, -999_990, 1_000_000, -1_000_000};
+        for (int score : scores) {
+            table.store(KEY, 12, TranspositionTable.LOWER, score, Moves.insert(Symbol.O, 35), generation);
+            long entry = table.probe(KEY);
+            assertEquals(score, TranspositionTable.score(entry));
+            assertEquals(12, TranspositionTable.depth(entry));
+            assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+            assertEquals(Moves.insert(Symbol.O, 35), TranspositionTable.move(entry));
+        }
+        table.store(KEY, 500, TranspositionTable.UPPER, -5, -1, generation);
+        long entry = table.probe(KEY);
+        assertEquals(127, TranspositionTable.depth(entry)); // depths are capped to 7 bits
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        assertEquals(-1, TranspositionTable.move(entry));
+    }
+
+    @Test
+    void testForeignAndTornEntriesAreMisses() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE);
+        int generation = table.newSearch();
+        long sameSlot = KEY + table.getCapacity();
+        table.store(KEY, 4, TranspositionTable.EXACT, 10, 7, generation);
+        assertEquals(0, table.probe(sameSlot));
+        assertEquals(0, table.probe(KEY ^ 1));
+
+        // a writer stored the data of another position but not its check word yet
+        long offset = (KEY & (table.getCapacity() - 1)) * 16;
+        long data = table.getEntries().get(ValueLayout.JAVA_LONG, offset + 8);
+        table.getEntries().set(ValueLayout.JAVA_LONG, offset + 8, data ^ (1L << 40));
+        assertEquals(0, table.probe(KEY));
+    }
+
+    @Test
+    void testDepthPreferredKeepsDeeperEntriesOfTheSameSearch() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        long other = KEY + table.getCapacity();
+        int generation = table.newSearch();
+        table.store(KEY, 8, TranspositionTable.EXACT, 1, 1, generation);
+        table.store(other, 3, TranspositionTable.EXACT, 2, 2, generation);
+        assertEquals(8, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(0, table.probe(other));
+
+        table.store(KEY, 2, TranspositionTable.EXACT, 3, 3, generation); // the same position is always updated
+        assertEquals(2, TranspositionTable.depth(table.probe(KEY)));
+        table.store(other, 5, TranspositionTable.EXACT, 4, 4, generation);
+        assertEquals(5, TranspositionTable.depth(table.probe(other)));
+
+        int next = table.newSearch();
+        assertNotEquals(generation, next);
+        table.store(KEY, 1, TranspositionTable.EXACT, 5, 5, next); // entries of older searches are not protected
+        assertEquals(1, TranspositionTable.depth(table.probe(KEY)));
+        assertEquals(0, table.probe(other));
+    }
+
+    @Test
+    void testAlwaysReplace() {
+        TranspositionTable table = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE);
+        long other = KEY + table.getCapacity();
+        int generation = table.newSearch();
+        table.store(KEY, 20, TranspositionTable.EXACT, 1, 1, generation);
+        table.store(other, 1, TranspositionTable.UPPER, 2, 2, generation);
+        assertEquals(0, table.probe(KEY));
+        assertEquals(1, TranspositionTable.depth(table.probe(other)));
+    }
+}
@@ -0,0 +1,142 @@
+package g62755.dev3.oxono.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TurnHistoryTest {
+
+    @Test
+    void testPacking() {
+        long move = TurnHistory.move(Symbol.O, 4095, 17);
+        assertFalse(TurnHistory.isInsert(move));
+        assertEquals(Symbol.O, TurnHistory.symbol(move));
+        assertEquals(4095, TurnHistory.from(move));
+        assertEquals(17, TurnHistory.to(move));
+
+        long insert = TurnHistory.insert(Color.BLACK, Symbol.X, 4095);
+        assertTrue(TurnHistory.isInsert(insert));
+        assertEquals(Color.BLACK, TurnHistory.color(insert));
+        assertEquals(Symbol.X, TurnHistory.symbol(insert));
+        assertEquals(4095, TurnHistory.to(insert));
+    }
+
+    @Test
+    void testRingKeepsTheLastActions() {
+        TurnHistory history = new TurnHistory(4);
+        for (int cell = 0; cell < 10; cell++) {
+            history.record(TurnHistory.insert(Color.PINK, Symbol.X, cell));
+        }
+        assertEquals(4, history.getUndoable());
+        assertEquals(9, TurnHistory.to(history.undo()));
+        assertEquals(8, TurnHistory.to(history.undo()));
+        assertEquals(8, TurnHistory.to(history.redo()));
+        assertEquals(1, history.getRedoable());
+
+        history.record(TurnHistory.insert(Color.PINK, Symbol.X, 20));
+        assertEquals(0, history.getRedoable());
+        assertThrows(IllegalStateException.class, history::redo);
+        assertEquals(20, TurnHistory.to(history.undo()));
+        assertEquals(8, TurnHistory.to(history.undo()));
+        assertEquals(7, TurnHistory.to(history.undo()));
+        assertEquals(6, TurnHistory.to(history.undo()));
+        assertThrows(IllegalStateException.class, history::undo);
+    }
+
+    @Test
+    void testGameUndoRedoTurn() {
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), new Board(6), 3);
+        game.setLogging(false);
+        game.move(game.getTotem(Symbol.X), new Position(2, 1));
+        game.insert(new Token(Color.PINK, Symbol.X), game.getLastTotemPosition(), new Position(2, 0));
+        game.move(game.getTotem(Symbol.O), new Position(3, 4));
+        game.insert(new Token(Color.BLACK, Symbol.O), game.getLastTotemPosition(), new Position(3, 5));
+        long afterBlack = game.getHash();
+
+        game.undo(); // the black turn and the pink insert
+        assertEquals(GameState.INSERT, game.getGameState());
+        assertEquals(8, game.getPlayerTokenCount(Color.PINK, Symbol.X));
+        assertEquals(8, game.getPlayerTokenCount(Color.BLACK, Symbol.O));
+        assertThrows(IllegalStateException.class, game::undo); // the pink move was forgotten by the history of 3
+
+        game.redo();
+        assertEquals(afterBlack, game.getHash());
+        assertEquals(GameState.MOVE, game.getGameState());
+        assertEquals(7, game.getPlayerTokenCount(Color.PINK, Symbol.X));
+        assertEquals(7, game.getPlayerTokenCount(Color.BLACK, Symbol.O));
+    }
+
+    @Test
+    void testSeekMatchesThePlayedPlies() {
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), new Board(6), 40);
+        game.setLogging(false);
+        AI ai = new AI(game, new Random(3));
+        long[] hashes = new long[200];
+        GameState[] states = new GameState[200];
+        Color[] toPlay = new Color[200];
+        int last = 0;
+        while (true) {
+            hashes[last] = game.getHash();
+            states[last] = game.getGameState();
+            toPlay[last] = game.getToPlay().getC();
+            if (game.isEnded() || game.drew()) {
+                break;
+            }
+            ai.play();
+            last++;
+        }
+        assertEquals(last, game.getLastPly());
+        assertEquals(Math.max(0, last - 40), game.getFirstPly());
+
+        int[] notified = new int[1];
+        game.addObserver(() -> notified[0]++);
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            int ply = game.getFirstPly() + random.nextInt(last - game.getFirstPly() + 1);
+            game.seek(ply);
+            assertEquals(ply, game.getPly());
+            assertEquals(hashes[ply], game.getHash());
+            assertEquals(states[ply], game.getGameState());
+            assertEquals(toPlay[ply], game.getToPlay().getC());
+        }
+        assertEquals(100, notified[0]);
+        assertThrows(IllegalArgumentException.class, () -> game.seek(game.getLastPly() + 1));
+        assertThrows(IllegalArgumentException.class, () -> game.seek(game.getFirstPly() - 1));
+
+        // playing after a seek drops the plies after it
+        int ply = last - 5 - (last - 5) % 2;
+        game.seek(ply);
+        ai.play();
+        assertEquals(ply + 1, game.getLastPly());
+        game.seek(ply);
+        assertEquals(hashes[ply], game.getHash());
+    }
+
+    @Test
+    void testCheckpointsAreBoundedOnLargeBoards() {
+        // the default depth of a 512 x 512 game, two plies per cell, with at most 8 snapshots plus the spare slots
+        Checkpoints checkpoints = new Checkpoints(16, 2 * 512 * 512, 512 * 512);
+        assertTrue(2 * 512 * 512 / checkpoints.getInterval() <= 8);
+        assertEquals(16, new Checkpoints(16, 40, 36).getInterval());
+
+        // snapshots spaced further apart on a 12 x 12 board still give the played plies back
+        Game game = new Game(new Player(Color.BLACK, 12), new Player(Color.PINK, 12), new Board(12));
+        game.setLogging(false);
+        AI ai = new AI(game, new Random(11));
+        long[] hashes = new long[2 * 12 * 12 + 1];
+        int last = 0;
+        hashes[0] = game.getHash();
+        while (!game.isEnded() && !game.drew()) {
+            ai.play();
+            hashes[++last] = game.getHash();
+        }
+        Random random = new Random(13);
+        for (int i = 0; i < 50; i++) {
+            int ply = random.nextInt(last + 1);
+            game.seek(ply);
+            assertEquals(hashes[ply], game.getHash());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package g62755.dev3.oxono.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private GameServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new GameServer(0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.stop(0);
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long id(HttpResponse<String> response) {
+        Matcher matcher = ID.matcher(response.body());
+        assertTrue(matcher.find(), response.body());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    @Test
+    void testPlayAGame() throws Exception {
+        HttpResponse<String> created = send("POST", "/games?size=6");
+        assertEquals(201, created.statusCode());
+        assertTrue(created.body().contains("\"state\":\"MOVE\",\"toPlay\":\"PINK\",\"winner\":null"));
+        String game = "/games/" + id(created);
+
+        HttpResponse<String> moved = send("POST", game + "/move?symbol=x&row=2&col=1");
+        assertEquals(200, moved.statusCode());
+        assertTrue(moved.body().contains("\"state\":\"INSERT\",\"toPlay\":\"PINK\""));
+
+        HttpResponse<String> inserted = send("POST", game + "/insert?row=2&col=0");
+        assertEquals(200, inserted.statusCode());
+        assertTrue(inserted.body().contains("\"state\":\"MOVE\",\"toPlay\":\"PINK\""), inserted.body());
+        assertTrue(inserted.body().contains("\"black\":{\"x\":7,\"o\":8}") || inserted.body().contains("\"black\":{\"x\":8,\"o\":7}"));
+
+        HttpResponse<String> undone = send("POST", game + "/undo");
+        assertEquals(200, undone.statusCode());
+        assertTrue(undone.body().contains("\"state\":\"INSERT\",\"toPlay\":\"PINK\""), undone.body());
+        assertEquals(undone.body(), send("GET", game).body());
+
+        HttpResponse<String> deleted = send("DELETE", game);
+        assertEquals(200, deleted.statusCode());
+        assertEquals(undone.body(), deleted.body());
+        assertEquals(0, server.getSessionCount());
+        assertEquals(404, send("GET", game).statusCode());
+        assertEquals(404, send("DELETE", game).statusCode());
+    }
+
+    @Test
+    void testErrorCodes() throws Exception {
+        assertEquals(400, send("POST", "/games?size=2").statusCode());
+        assertEquals(400, send("POST", "/games?difficulty=unbeatable").statusCode());
+        assertEquals(405, send("GET", "/games").statusCode());
+        assertEquals(404, send("GET", "/games/42").statusCode());
+        assertEquals(404, send("GET", "/games/nope").statusCode());
+
+        String game = "/games/" + id(send("POST", "/games?size=6"));
+        assertEquals(404, send("POST", game + "/jump").statusCode());
+        assertEquals(405, send("GET", game + "/undo").statusCode());
+        assertEquals(400, send("POST", game + "/move?symbol=x").statusCode());
+        assertEquals(400, send("POST", game + "/move?symbol=x&row=5&col=5").statusCode());
+        assertEquals(409, send("POST", game + "/insert?row=2&col=0").statusCode());
+        assertEquals(200, send("POST", game + "/move?symbol=x&row=2&col=1").statusCode());
+        assertEquals(409, send("POST", game + "/move?symbol=o&row=4&col=3").statusCode());
+        HttpResponse<String> error = send("POST", game + "/insert?row=5&col=5");
+        assertEquals(400, error.statusCode());
+        assertTrue(error.body().startsWith("{\"error\":"));
+    }
+
+    @Test
+    void testConcurrentSessions() throws Exception {
+        int games = 16;
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                results.add(players.submit(() -> {
+                    String game = "/games/" + id(send("POST", "/games?size=6"));
+                    List<Integer> codes = new ArrayList<>();
+                    codes.add(send("POST", game + "/move?symbol=x&row=2&col=1").statusCode());
+                    codes.add(send("POST", game + "/insert?row=2&col=0").statusCode());
+                    codes.add(send("GET", game).statusCode());
+                    codes.add(send("DELETE", game).statusCode());
+                    return codes;
+                }));
+            }
+            for (Future<List<Integer>> result : results) {
+                assertEquals(List.of(200, 200, 200, 200), result.get());
+            }
+        }
+        assertEquals(0, server.getSessionCount());
+    }
+
+    @Test
+    void testConcurrentRequestsOnOneSession() throws Exception {
+        String game = "/games/" + id(send("POST", "/games?size=6"));
+        assertEquals(200, send("POST", game + "/move?symbol=x&row=2&col=1").statusCode());
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<HttpResponse<String>> insert = players.submit(() -> send("POST", game + "/insert?row=2&col=0"));
+            Future<HttpResponse<String>> delete = players.submit(() -> send("DELETE", game));
+            int inserted = insert.get().statusCode();
+            assertEquals(200, delete.get().statusCode());
+            // the insert either ran whole before the close or was rejected after it
+            assertTrue(inserted == 200 || inserted == 404, "status " + inserted);
+        }
+        assertEquals(404, send("POST", game + "/undo").statusCode());
+    }
+}
@@ -0,0 +1,94 @@
+package g62755.dev3.oxono.simulation;
+
+import g62755.dev3.oxono.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+
+    // Recorded counts from the initial position, by number of turns. Enclave jumps first appear at 4 turns on 4x4.
+    private static final long[] PERFT_4 = {1, 36, 904, 18460, 308024, 4256524};
+    private static final long[] PERFT_6 = {1, 68, 3612, 162680, 6470416};
+
+    private static Game newGame(int size) {
+        return new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+    }
+
+    @Test
+    void testRecordedCounts() {
+        for (int turns = 0; turns < PERFT_4.length; turns++) {
+            assertEquals(PERFT_4[turns], Perft.perft(newGame(4), turns), "4x4, " + turns + " turns");
+        }
+        for (int turns = 0; turns < PERFT_6.length; turns++) {
+            assertEquals(PERFT_6[turns], Perft.perft(newGame(6), turns), "6x6, " + turns + " turns");
+        }
+    }
+
+    @Test
+    void testParallelMatchesSingleThreaded() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(PERFT_4[5], Perft.perft(newGame(4), 5, pool));
+            assertEquals(PERFT_6[3], Perft.perft(newGame(6), 3, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCountsMatchValidationRules() {
+        Board board = new Board(4);
+        Game game = new Game(new Player(Color.BLACK, 4), new Player(Color.PINK, 4), board);
+        assertEquals(PERFT_4[4], countByValidation(game, board, 8));
+    }
+
+    @Test
+    void testGameLeftUnchanged() {
+        Game game = newGame(6);
+        long hash = game.getHash();
+        Perft.perft(game, 2);
+        assertEquals(hash, game.getHash());
+        assertEquals(GameState.MOVE, game.getGameState());
+    }
+
+    // Counts the same tree as Perft by trying every cell with Board.isValidMove and Board.isValidInsert
+    private static long countByValidation(Game game, Board board, int plies) {
+        if (plies == 0) {
+            return 1;
+        }
+        if (game.isEnded()) {
+            return 0;
+        }
+        int size = board.getSize();
+        long nodes = 0;
+        if (game.getGameState() == GameState.MOVE) {
+            Player player = game.getToPlay();
+            for (Symbol symbol : Symbol.values()) {
+                if ((symbol == Symbol.X ? player.getX() : player.getO()) == 0) {
+                    continue;
+                }
+                Position from = board.getTotem(symbol).getPosition();
+                for (int cell = 0; cell < size * size; cell++) {
+                    if (board.isValidMove(from, board.getPosition(cell))) {
+                        game.makeMove(Moves.move(symbol, cell));
+                        nodes += countByValidation(game, board, plies - 1);
+                        game.unmakeMove();
+                    }
+                }
+            }
+        } else {
+            Position totem = game.getLastTotemPosition();
+            for (int cell = 0; cell < size * size; cell++) {
+                if (board.isValidInsert(totem, board.getPosition(cell))) {
+                    game.makeMove(Moves.insert(game.getToInsert(), cell));
+                    nodes += countByValidation(game, board, plies - 1);
+                    game.unmakeMove();
+                }
+            }
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,33 @@
+package g62755.dev3.oxono.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelfPlayTest {
+
+    private static SelfPlayReport run(Strategy pink, Strategy black, int workers, long seed, int games) {
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            return new SelfPlay(6, pink, black, pool, seed).run(games).withNanos(0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSameSeedSameReport() {
+        SelfPlayReport report = run(Strategy.EASY, Strategy.EASY, 2, 11, 500);
+        assertEquals(500, report.games());
+        assertEquals(report.games(), report.pinkWins() + report.blackWins() + report.draws());
+        assertEquals(report, run(Strategy.EASY, Strategy.EASY, 2, 11, 500));
+        assertNotEquals(report, run(Strategy.EASY, Strategy.EASY, 2, 12, 500));
+    }
+
+    @Test
+    void testMonteCarloBatchesAreReproducible() {
+        assertEquals(run(Strategy.MCTS, Strategy.EASY, 2, 3, 6), run(Strategy.MCTS, Strategy.EASY, 2, 3, 6));
+    }
+}
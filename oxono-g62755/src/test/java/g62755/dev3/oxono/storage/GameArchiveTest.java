@@ -0,0 +1,147 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.Turn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    private List<GameRecord> fill(Path file, int games) throws IOException {
+        List<GameRecord> records = new ArrayList<>();
+        try (GameArchiveWriter writer = new GameArchiveWriter(file)) {
+            for (int i = 0; i < games; i++) {
+                GameRecord record = GameRecordTest.randomGame(i % 3 == 0 ? 4 : 6, i);
+                assertEquals(i, writer.append(record));
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    void testRandomAccess() throws IOException {
+        Path file = dir.resolve("games.oxa");
+        List<GameRecord> records = fill(file, 300);
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(300, archive.size());
+            ArchivedGame game = new ArchivedGame();
+            for (int id : new int[] {299, 0, 150, 7}) {
+                GameRecord record = records.get(id);
+                assertEquals(record, archive.get(id));
+
+                archive.read(id, game);
+                assertEquals(id, game.getId());
+                assertEquals(record.size(), game.getSize());
+                assertEquals(record.outcome(), game.getOutcome());
+                assertEquals(record.turns().size(), game.getTurnCount());
+                for (Turn turn : record.turns()) {
+                    assertTrue(game.nextTurn());
+                    assertEquals(turn, new Turn(game.getMove(), game.getInsert()));
+                }
+                assertFalse(game.nextTurn());
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> archive.get(300));
+        }
+    }
+
+    @Test
+    void testParallelScans() throws IOException {
+        Path file = dir.resolve("games.oxa");
+        List<GameRecord> records = fill(file, 5000);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (GameArchive archive = new GameArchive(file)) {
+            Map<Integer, Double> lengths = ArchiveScans.averageLengthBySize(archive, pool);
+            for (int size : new int[] {4, 6}) {
+                assertEquals(records.stream().filter(r -> r.size() == size).mapToInt(r -> r.turns().size()).average()
+                        .orElseThrow(), lengths.get(size), 1e-9);
+            }
+
+            Map<Integer, Double> openings = ArchiveScans.winRateByOpening(archive, pool, 6);
+            int move = openings.keySet().iterator().next();
+            List<GameRecord> games = records.stream()
+                    .filter(r -> r.size() == 6 && r.turns().get(0).move() == move).toList();
+            long pinkWins = games.stream().filter(r -> r.outcome() == Outcome.PINK_WIN).count();
+            assertEquals((double) pinkWins / games.size(), openings.get(move), 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAppendAfterTornIndex() throws IOException {
+        Path file = dir.resolve("games.oxa");
+        List<GameRecord> records = fill(file, 10);
+        try (FileChannel index = FileChannel.open(dir.resolve("games.oxa.idx"), StandardOpenOption.WRITE)) {
+            index.truncate(9 * Long.BYTES + 3); // the last offset was only partly written
+        }
+        try (GameArchiveWriter writer = new GameArchiveWriter(file)) {
+            assertEquals(9, writer.size());
+            assertEquals(9, writer.append(records.get(3)));
+        }
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(10, archive.size());
+            assertEquals(records.get(8), archive.get(8));
+            assertEquals(records.get(3), archive.get(9));
+        }
+        assertTrue(Files.size(file) > 0);
+    }
+
+    @Test
+    void testCrashBeforeFlush() throws IOException {
+        Path file = dir.resolve("games.oxa");
+        List<GameRecord> records = new ArrayList<>();
+        GameArchiveWriter crashed = new GameArchiveWriter(file); // never flushed nor closed
+        for (int i = 0; i < 600; i++) {
+            records.add(GameRecordTest.randomGame(6, i));
+            crashed.append(records.get(i));
+        }
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(512, archive.size()); // only the offsets of the games known to be on disk
+            assertEquals(records.get(511), archive.get(511));
+        }
+
+        // a data file cut after the index was written: the games past its end are dropped
+        ByteBuffer end = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel index = FileChannel.open(dir.resolve("games.oxa.idx"));
+             FileChannel data = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            index.read(end, 500 * Long.BYTES);
+            data.truncate(end.getLong(0));
+        }
+        try (GameArchiveWriter writer = new GameArchiveWriter(file)) {
+            assertEquals(500, writer.size());
+            assertEquals(500, writer.append(records.get(599)));
+        }
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(501, archive.size());
+            assertEquals(records.get(499), archive.get(499));
+            assertEquals(records.get(599), archive.get(500));
+        }
+    }
+
+    @Test
+    void testEmptyArchive() throws IOException {
+        Path file = dir.resolve("empty.oxa");
+        new GameArchiveWriter(file).close();
+        try (GameArchive archive = new GameArchive(file)) {
+            assertEquals(0, archive.size());
+            assertEquals(Map.of(), ArchiveScans.averageLengthBySize(archive, ForkJoinPool.commonPool()));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameRecordTest {
+
+    // Plays a random game and records it
+    static GameRecord randomGame(int size, long seed) {
+        Random random = new Random(seed);
+        Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+        int[] moves = new int[game.getMaxMoves()];
+        List<Turn> turns = new ArrayList<>();
+        while (!game.isEnded()) {
+            int count = game.generateMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            int move = moves[random.nextInt(count)];
+            game.makeMove(move);
+            count = game.generateMoves(moves);
+            int insert = moves[random.nextInt(count)];
+            game.makeMove(insert);
+            turns.add(new Turn(move, insert));
+        }
+        Outcome outcome = !game.isEnded() ? Outcome.DRAW
+                : game.getToPlay().getC() == Color.PINK ? Outcome.BLACK_WIN : Outcome.PINK_WIN;
+        return new GameRecord(size, seed, turns, outcome);
+    }
+
+    @Test
+    void testRoundTrip() {
+        for (int size : new int[] {4, 6, 8, 16}) {
+            for (long seed = 0; seed < 50; seed++) {
+                GameRecord record = randomGame(size, seed);
+                GameRecord decoded = GameRecord.decode(record.encode());
+                assertEquals(record, decoded);
+                assertEquals(record.replay().getHash(), decoded.replay().getHash());
+            }
+        }
+    }
+
+    @Test
+    void testTwoBytesPerTurn() {
+        long bytes = 0;
+        long turns = 0;
+        for (long seed = 0; seed < 200; seed++) {
+            GameRecord record = randomGame(6, seed);
+            bytes += record.encode().length;
+            turns += record.turns().size();
+        }
+        int header = 11;
+        int end = 1;
+        assertTrue(bytes - 200L * (header + end) <= 2 * turns + turns / 10, bytes + " bytes for " + turns + " turns");
+    }
+
+    @Test
+    void testStreamOfGames() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameRecordWriter writer = new GameRecordWriter(out);
+        writer.write(randomGame(6, 1));
+        writer.begin(8, -7);
+        writer.turn(new Turn(Moves.move(Symbol.O, 0), -1));
+        writer.end(Outcome.UNFINISHED);
+
+        GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(randomGame(6, 1), reader.read());
+        assertTrue(reader.begin());
+        assertEquals(8, reader.getSize());
+        assertEquals(-7, reader.getSeed());
+        assertEquals(new Turn(Moves.move(Symbol.O, 0), -1), reader.nextTurn());
+        assertNull(reader.nextTurn());
+        assertEquals(Outcome.UNFINISHED, reader.getOutcome());
+        assertFalse(reader.begin());
+    }
+
+    @Test
+    void testTruncatedRecord() {
+        byte[] bytes = randomGame(6, 3).encode();
+        byte[] truncated = java.util.Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> GameRecord.decode(truncated));
+    }
+}
@@ -0,0 +1,232 @@
+package g62755.dev3.oxono.storage;
+
+import g62755.dev3.oxono.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalStoreTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    private static Game newGame() {
+        Game game = new Game(new Player(Color.BLACK, 6), new Player(Color.PINK, 6), new Board(6));
+        game.setLogging(false);
+        return game;
+    }
+
+    // Plays rounds of random turns, the pink player sometimes taking back the last round and sometimes redoing it
+    private static void play(Game game, Random random, int rounds) {
+        AI pink = new AI(game, random);
+        AI black = new AI(game, random);
+        int played = 0;
+        for (int i = 0; i < rounds && !game.isEnded(); i++) {
+            if (played > 0 && random.nextInt(4) == 0) {
+                game.undo(); // back to the insert of pink
+                if (random.nextBoolean()) {
+                    game.redo();
+                    continue;
+                }
+                game.undo(); // back to the totem move of pink
+                played--;
+            }
+            pink.play();
+            pink.play();
+            if (!game.isEnded()) {
+                black.play();
+                black.play();
+                played++;
+            }
+        }
+    }
+
+    private static void assertSameGame(Game expected, Game actual) {
+        assertEquals(expected.getHash(), actual.getHash());
+        assertEquals(expected.getGameState(), actual.getGameState());
+        assertEquals(expected.getToPlay().getC(), actual.getToPlay().getC());
+        for (Color color : new Color[] {Color.PINK, Color.BLACK}) {
+            for (Symbol symbol : Symbol.values()) {
+                assertEquals(expected.getPlayerTokenCount(color, symbol), actual.getPlayerTokenCount(color, symbol));
+            }
+        }
+    }
+
+    @Test
+    void testRecoverAfterCrash() throws IOException {
+        JournalStore store = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 16);
+        Map<Long, Game> games = new HashMap<>();
+        for (long id = 1; id <= 20; id++) {
+            Game game = newGame();
+            store.create(id, game, Difficulty.EASY);
+            play(game, new Random(id), 12);
+            games.put(id, game);
+        }
+        store.commit(); // then the process dies without closing the store
+
+        try (JournalStore recovered = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 16)) {
+            List<GameJournal> journals = recovered.recover();
+            assertEquals(20, journals.size());
+            for (GameJournal journal : journals) {
+                Game game = games.get(journal.getId());
+                assertSameGame(game, journal.getGame());
+                if (!game.isEnded() && game.getGameState() == GameState.MOVE) {
+                    game.undo();
+                    journal.getGame().undo();
+                    assertSameGame(game, journal.getGame());
+                    game.redo();
+                    journal.getGame().redo();
+                    assertSameGame(game, journal.getGame());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testTornBatchIsDropped() throws IOException {
+        JournalStore store = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000);
+        Game game = newGame();
+        store.create(7, game, Difficulty.EASY);
+        Random random = new Random(7);
+        play(game, random, 3);
+        store.commit();
+        Game committed = new Game(game);
+        play(game, random, 3);
+        store.commit();
+        try (FileChannel file = FileChannel.open(dir.resolve("7.journal"), StandardOpenOption.WRITE)) {
+            file.truncate(file.size() - 2);
+        }
+
+        try (JournalStore recovered = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000)) {
+            GameJournal journal = recovered.recover().get(0);
+            assertSameGame(committed, journal.getGame());
+            play(journal.getGame(), random, 3);
+            recovered.commit();
+            assertTrue(journal.getGame().countEmptyTiles() < committed.countEmptyTiles());
+        }
+        try (JournalStore reopened = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000)) {
+            assertEquals(1, reopened.recover().size());
+        }
+    }
+
+    @Test
+    void testFailedBatchIsReportedAndRewritten() throws Exception {
+        JournalStore store = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000);
+        Game game = newGame();
+        GameJournal journal = store.create(9, game, Difficulty.EASY);
+        Random random = new Random(9);
+        play(game, random, 3);
+        store.commit();
+        Field channel = GameJournal.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(journal)).close(); // every write to the journal now fails
+        play(game, random, 3);
+        store.commit();
+
+        assertThrows(UncheckedIOException.class, () -> play(game, random, 1));
+        store.commit(); // a snapshot, written whole to a new file
+        play(game, random, 3);
+        store.commit();
+
+        try (JournalStore recovered = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000)) {
+            assertSameGame(game, recovered.recover().get(0).getGame());
+        }
+    }
+
+    @Test
+    void testBadJournalIsSkipped() throws IOException {
+        Game game = newGame();
+        try (JournalStore store = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000)) {
+            store.create(1, game, Difficulty.EASY);
+            play(game, new Random(1), 3);
+        }
+        Files.write(dir.resolve("2.journal"), new byte[] {'J', 9, 6, 0});
+        // a whole batch undoing a game not played yet
+        CRC32 crc = new CRC32();
+        crc.update(GameJournal.UNDONE);
+        Files.write(dir.resolve("3.journal"), ByteBuffer.allocate(10)
+                .put(new byte[] {'J', GameJournal.VERSION, 6, 0, 1}).putInt((int) crc.getValue())
+                .put((byte) GameJournal.UNDONE).array());
+
+        try (JournalStore recovered = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 1000)) {
+            List<GameJournal> journals = recovered.recover();
+            assertEquals(List.of(1L), journals.stream().map(GameJournal::getId).toList());
+            assertSameGame(game, journals.get(0).getGame());
+        }
+        assertTrue(Files.exists(dir.resolve("2.journal.bad")));
+        assertTrue(Files.exists(dir.resolve("3.journal.bad")));
+        assertFalse(Files.exists(dir.resolve("2.journal")));
+    }
+
+    @Test
+    void testAlwaysPolicyWaitsForTheBatch() throws IOException {
+        JournalStore store = new JournalStore(dir, FsyncPolicy.ALWAYS, HOUR, 8);
+        Game game = newGame();
+        store.create(3, game, Difficulty.HARD);
+        play(game, new Random(3), 10);
+
+        try (JournalStore recovered = new JournalStore(dir, FsyncPolicy.NEVER, HOUR, 8)) {
+            GameJournal journal = recovered.recover().get(0);
+            assertEquals(Difficulty.HARD, journal.getDifficulty());
+            assertSameGame(game, journal.getGame());
+        }
+    }
+
+    @Test
+    void testRecoverSoughtGame() throws IOException {
+        for (int snapshotEvery : new int[] {8, 1000}) {
+            Path games = dir.resolve("every" + snapshotEvery);
+            games.toFile().mkdir();
+            JournalStore store = new JournalStore(games, FsyncPolicy.NEVER, HOUR, snapshotEvery);
+            Game game = newGame();
+            store.create(5, game, Difficulty.EASY);
+            play(game, new Random(5), 40);
+            game.seek(game.getLastPly() / 2);
+            store.commit();
+
+            try (JournalStore recovered = new JournalStore(games, FsyncPolicy.NEVER, HOUR, snapshotEvery)) {
+                Game journaled = recovered.recover().get(0).getGame();
+                assertEquals(game.getPly(), journaled.getPly());
+                assertEquals(game.getLastPly(), journaled.getLastPly());
+                assertSameGame(game, journaled);
+                game.seek(game.getLastPly());
+                journaled.seek(journaled.getLastPly());
+                assertSameGame(game, journaled);
+                assertEquals(game.isEnded(), journaled.isEnded());
+            }
+        }
+    }
+
+    @Test
+    void testDelete() throws IOException {
+        Game game = newGame();
+        try (JournalStore store = new JournalStore(dir, FsyncPolicy.GROUP, 1, 256)) {
+            store.create(1, newGame(), Difficulty.EASY);
+            store.create(2, game, Difficulty.EASY);
+            play(game, new Random(2), 2);
+            store.delete(1);
+        }
+        try (JournalStore store = new JournalStore(dir, FsyncPolicy.GROUP, 1, 256)) {
+            List<GameJournal> journals = store.recover();
+            assertEquals(List.of(2L), journals.stream().map(GameJournal::getId).toList());
+            assertSameGame(game, journals.get(0).getGame());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package g62755.dev3.oxono.view;
+
+import g62755.dev3.oxono.controller.GameController;
+import g62755.dev3.oxono.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameViewTest {
+
+    private static Game newGame(int size) {
+        Game game = new Game(new Player(Color.BLACK, size), new Player(Color.PINK, size), new Board(size));
+        game.setLogging(false);
+        return game;
+    }
+
+    @Test
+    void testFullBoardOfAnySize() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameView view = new GameView(out, false);
+        view.setController(new GameController(newGame(10), view));
+
+        view.displayBoard();
+        String[] lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        assertEquals(10, lines.length);
+        assertEquals("_ _ _ _ _ _ _ _ _ _ ", lines[0]);
+        assertEquals("_ _ _ _ \u001B[34mX \u001B[0m_ _ _ _ _ ", lines[4]);
+    }
+
+    @Test
+    void testOnlyChangedCellsAreRedrawn() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameView view = new GameView(out, true);
+        Game game = newGame(8);
+        view.setController(new GameController(game, view));
+        view.displayBoard();
+        assertTrue(out.toString(StandardCharsets.US_ASCII).startsWith("\u001B[2J\u001B[H"));
+
+        out.reset();
+        game.move(game.getTotem(Symbol.X), new Position(3, 1)); // from (3, 3)
+        assertEquals(0, out.size()); // the controller redraws once the turn is published, or before asking for the insert
+        view.displayBoard();
+        assertEquals("\u001B7\u001B[4;3H\u001B[34mX\u001B[0m\u001B[4;7H_\u001B[0m\u001B8",
+                out.toString(StandardCharsets.US_ASCII));
+
+        out.reset();
+        view.displayBoard();
+        assertEquals(0, out.size());
+    }
+}